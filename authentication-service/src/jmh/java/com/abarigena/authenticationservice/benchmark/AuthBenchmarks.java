@@ -0,0 +1,91 @@
+package com.abarigena.authenticationservice.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.File;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+// Базовый прогон горячих путей: в 1 поток и по числу ядер, с профилировщиком аллокаций (gc.alloc.rate.norm).
+// Набор бенчмарков - -Djmh.include (regex), по умолчанию те, что не требуют БД и Kafka.
+// Результаты пишутся в target/jmh/<threads>t.json. Если задан -Djmh.baseline=<каталог с прошлыми json>,
+// результаты сравниваются с ним, и при замедлении больше чем на jmh.tolerance (по умолчанию 10%) процесс
+// завершается с кодом 1.
+// Запуск: mvn -Pbenchmark compile exec:exec -Djmh.main=com.abarigena.authenticationservice.benchmark.AuthBenchmarks
+public class AuthBenchmarks {
+
+    private static final String DEFAULT_INCLUDE = "AuthHotPathBenchmark|PasswordHashBenchmark";
+
+    public static void main(String[] args) throws Exception {
+        String include = System.getProperty("jmh.include", DEFAULT_INCLUDE);
+        String baseline = System.getProperty("jmh.baseline", "");
+        double tolerance = Double.parseDouble(System.getProperty("jmh.tolerance", "0.10"));
+        File outputDir = new File("target/jmh");
+        outputDir.mkdirs();
+
+        boolean regressed = false;
+        for (int threads : new int[]{1, Runtime.getRuntime().availableProcessors()}) {
+            File result = new File(outputDir, threads + "t.json");
+            Options options = new OptionsBuilder()
+                    .include(include)
+                    .threads(threads)
+                    .addProfiler(GCProfiler.class)
+                    .resultFormat(ResultFormatType.JSON)
+                    .result(result.getPath())
+                    .build();
+            Collection<RunResult> results = new Runner(options).run();
+            if (!baseline.isBlank()) {
+                regressed |= compare(results, new File(baseline, result.getName()), tolerance);
+            }
+        }
+        if (regressed) {
+            System.exit(1);
+        }
+    }
+
+    private static boolean compare(Collection<RunResult> results, File baselineFile, double tolerance) throws Exception {
+        if (!baselineFile.exists()) {
+            System.out.println("No baseline " + baselineFile + ", skipping comparison");
+            return false;
+        }
+        Map<String, Double> baseline = new HashMap<>();
+        for (JsonNode node : new ObjectMapper().readTree(baselineFile)) {
+            baseline.put(key(node.get("benchmark").asText(), node.path("params").toString()),
+                    node.get("primaryMetric").get("score").asDouble());
+        }
+
+        boolean regressed = false;
+        for (RunResult result : results) {
+            String benchmark = result.getParams().getBenchmark();
+            Map<String, String> params = new TreeMap<>();
+            result.getParams().getParamsKeys().forEach(name -> params.put(name, result.getParams().getParam(name)));
+            Double before = baseline.get(key(benchmark, params.isEmpty() ? "" : new ObjectMapper().writeValueAsString(params)));
+            if (before == null) {
+                continue;
+            }
+            double after = result.getPrimaryResult().getScore();
+            // В режиме avgt больше - хуже, в thrpt - меньше хуже
+            double change = result.getParams().getMode().shortLabel().equals("thrpt")
+                    ? (before - after) / before
+                    : (after - before) / before;
+            String verdict = change > tolerance ? "REGRESSION" : "ok";
+            System.out.printf("%-10s %s %s: %.3f -> %.3f %s (%+.1f%%)%n", verdict, benchmark, params,
+                    before, after, result.getPrimaryResult().getScoreUnit(), change * 100);
+            regressed |= change > tolerance;
+        }
+        return regressed;
+    }
+
+    private static String key(String benchmark, String params) {
+        return benchmark + (params.isEmpty() || params.equals("\"\"") ? "" : params);
+    }
+}
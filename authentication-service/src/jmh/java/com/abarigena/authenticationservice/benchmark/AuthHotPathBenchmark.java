@@ -0,0 +1,90 @@
+package com.abarigena.authenticationservice.benchmark;
+
+import com.abarigena.authenticationservice.dto.UserInfo;
+import com.abarigena.authenticationservice.entity.AuthUser;
+import com.abarigena.authenticationservice.entity.UserRole;
+import com.abarigena.authenticationservice.entity.UserStatus;
+import com.abarigena.authenticationservice.security.JwtKeyManager;
+import com.abarigena.authenticationservice.security.JwtTokenProvider;
+import com.abarigena.authenticationservice.security.VerifiedToken;
+import com.abarigena.authenticationservice.security.VerifiedTokenCache;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.reflect.Field;
+import java.util.Collection;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+// Горячие пути без Spring контекста и БД: выпуск и проверка access токена (HS512), getAuthorities.
+// Число потоков задается запуском (AuthBenchmarks гоняет 1 поток и по числу ядер), аллокации - через -prof gc.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-XX:+UseG1GC")
+public class AuthHotPathBenchmark {
+
+    private JwtTokenProvider jwtTokenProvider;
+    private AuthUser user;
+    private String accessToken;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        // Ключи HS512: JwtKeyManager не обращается к репозиторию
+        JwtKeyManager keyManager = new JwtKeyManager(null, JwtKeyManager.HS512, 604_800_000, 60_000, 86_400_000, "");
+        jwtTokenProvider = new JwtTokenProvider(new VerifiedTokenCache(100_000, new SimpleMeterRegistry()), keyManager);
+        // Значения @Value, как в application.yml
+        set(jwtTokenProvider, "jwtSecret", "benchmark-secret-benchmark-secret-benchmark-secret-benchmark-secret");
+        set(jwtTokenProvider, "accessTokenExpirationMs", 360_000L);
+        set(jwtTokenProvider, "refreshTokenExpirationMs", 86_400_000L);
+        set(jwtTokenProvider, "acceptLegacyHmac", true);
+        set(jwtTokenProvider, "compactRoles", true);
+        set(jwtTokenProvider, "includeEmail", true);
+        jwtTokenProvider.init();
+
+        user = AuthUser.builder()
+                .userId(UUID.randomUUID())
+                .email("some.passenger@example.com")
+                .passwordHash("{bcrypt}hash")
+                .status(UserStatus.ACTIVE)
+                .roles(Set.of(UserRole.USER, UserRole.DRIVER))
+                .build();
+        accessToken = jwtTokenProvider.generateAccessToken(user, 0);
+    }
+
+    @Benchmark
+    public String generateAccessToken() {
+        return jwtTokenProvider.generateAccessToken(user, 0);
+    }
+
+    // Полная проверка подписи на каждом вызове
+    @Benchmark
+    public boolean validateToken() {
+        return jwtTokenProvider.validateToken(accessToken);
+    }
+
+    @Benchmark
+    public UserInfo getUserInfoFromJWT() {
+        return jwtTokenProvider.getUserInfoFromJWT(accessToken);
+    }
+
+    // Путь /api/auth/validate: SHA-256 токена и попадание в кэш проверенных токенов
+    @Benchmark
+    public VerifiedToken verifyAccessTokenCached() {
+        return jwtTokenProvider.verifyAccessToken(accessToken);
+    }
+
+    @Benchmark
+    public Collection<?> getAuthorities() {
+        return user.getAuthorities();
+    }
+
+    private static void set(Object target, String fieldName, Object value) throws ReflectiveOperationException {
+        Field field = target.getClass().getDeclaredField(fieldName);
+        field.setAccessible(true);
+        field.set(target, value);
+    }
+}
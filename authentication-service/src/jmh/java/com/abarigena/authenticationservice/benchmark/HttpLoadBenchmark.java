@@ -0,0 +1,108 @@
+package com.abarigena.authenticationservice.benchmark;
+
+import com.abarigena.authenticationservice.AuthenticationServiceApplication;
+import com.abarigena.authenticationservice.dto.RegisterDto;
+import com.abarigena.authenticationservice.service.AuthService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+// Нагрузочный сравнительный прогон /login и /validate: платформенные потоки Tomcat против виртуальных.
+// Клиентских потоков больше, чем потоков Tomcat по умолчанию (200), чтобы упереться в пул.
+// Нужен Postgres из docker-compose; bcrypt-strength снижен, чтобы на /login был виден ввод-вывод, а не CPU.
+// Таблицы создаются в одноразовой схеме bench_http_load_<runId>, Kafka не используется; схема удаляется после прогона.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 10)
+@Measurement(iterations = 3, time = 20)
+@Threads(256)
+@Fork(1)
+public class HttpLoadBenchmark {
+
+    private static final String PASSWORD = "benchmark-password";
+
+    @Param({"false", "true"})
+    public boolean virtualThreads;
+
+    private ConfigurableApplicationContext context;
+    private HttpClient httpClient;
+    private String baseUrl;
+    private byte[] loginBody;
+    private byte[] validateBody;
+    private final String schema = "bench_http_load_" + UUID.randomUUID().toString().substring(0, 8);
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        context = new SpringApplicationBuilder(AuthenticationServiceApplication.class)
+                .properties(
+                        "server.port=0",
+                        "spring.cloud.config.enabled=false",
+                        "eureka.client.enabled=false",
+                        "spring.jpa.show-sql=false",
+                        "app.security.password.bcrypt-strength=4",
+                        "spring.threads.virtual.enabled=" + virtualThreads,
+                        // Каждое соединение работает в одноразовой схеме, ddl-auto создает таблицы в ней
+                        "spring.datasource.hikari.schema=" + schema,
+                        "spring.datasource.hikari.connection-init-sql=CREATE SCHEMA IF NOT EXISTS " + schema,
+                        "spring.jpa.properties.hibernate.default_schema=" + schema,
+                        // События остаются в outbox схемы бенчмарка
+                        "app.outbox.poll-interval-ms=86400000",
+                        "spring.kafka.listener.auto-startup=false")
+                .run();
+        baseUrl = "http://localhost:" + context.getEnvironment().getProperty("local.server.port") + "/api/auth";
+        httpClient = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+
+        ObjectMapper objectMapper = new ObjectMapper();
+        RegisterDto registerDto = new RegisterDto();
+        registerDto.setEmail("load-" + UUID.randomUUID() + "@example.com");
+        registerDto.setPassword(PASSWORD);
+        context.getBean(AuthService.class).register(registerDto);
+
+        loginBody = objectMapper.writeValueAsBytes(Map.of("email", registerDto.getEmail(), "password", PASSWORD));
+        String loginResponse = post("/login", loginBody).body();
+        String accessToken = objectMapper.readTree(loginResponse).get("accessToken").asText();
+        validateBody = objectMapper.writeValueAsBytes(Map.of("token", accessToken));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        try {
+            context.getBean(JdbcTemplate.class).execute("DROP SCHEMA IF EXISTS " + schema + " CASCADE");
+        } finally {
+            context.close();
+        }
+    }
+
+    @Benchmark
+    public int login() throws Exception {
+        return post("/login", loginBody).statusCode();
+    }
+
+    @Benchmark
+    public int validate() throws Exception {
+        return post("/validate", validateBody).statusCode();
+    }
+
+    private HttpResponse<String> post(String path, byte[] body) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofByteArray(body))
+                .build();
+        return httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+}
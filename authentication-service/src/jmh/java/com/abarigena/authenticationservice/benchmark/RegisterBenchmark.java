@@ -0,0 +1,75 @@
+package com.abarigena.authenticationservice.benchmark;
+
+import com.abarigena.authenticationservice.AuthenticationServiceApplication;
+import com.abarigena.authenticationservice.dto.RegisterDto;
+import com.abarigena.authenticationservice.service.AuthService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Пропускная способность register() с фильтром email и без него.
+// Нужен Postgres из docker-compose. bcrypt-strength снижен, чтобы хэширование не заслоняло работу с БД.
+// Таблицы создаются в отдельной схеме bench_register_<runId>, которая удаляется после прогона;
+// outbox relay и Kafka listener'ы не запускаются - в рабочую БД и Kafka ничего не попадает.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 10)
+@Measurement(iterations = 5, time = 10)
+@Threads(16)
+@Fork(1)
+public class RegisterBenchmark {
+
+    @Param({"true", "false"})
+    public boolean emailFilter;
+
+    private ConfigurableApplicationContext context;
+    private AuthService authService;
+    private final AtomicLong sequence = new AtomicLong();
+    private final String runId = UUID.randomUUID().toString().substring(0, 8);
+    private final String schema = "bench_register_" + runId;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(AuthenticationServiceApplication.class)
+                .properties(
+                        "server.port=0",
+                        "spring.cloud.config.enabled=false",
+                        "eureka.client.enabled=false",
+                        "spring.jpa.show-sql=false",
+                        "app.security.password.bcrypt-strength=4",
+                        "app.registration.email-filter.enabled=" + emailFilter,
+                        // Каждое соединение работает в одноразовой схеме, ddl-auto создает таблицы в ней
+                        "spring.datasource.hikari.schema=" + schema,
+                        "spring.datasource.hikari.connection-init-sql=CREATE SCHEMA IF NOT EXISTS " + schema,
+                        "spring.jpa.properties.hibernate.default_schema=" + schema,
+                        // События остаются в outbox схемы бенчмарка
+                        "app.outbox.poll-interval-ms=86400000",
+                        "spring.kafka.listener.auto-startup=false")
+                .run();
+        // Фильтр прогревается по ApplicationReadyEvent внутри run()
+        authService = context.getBean(AuthService.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        try {
+            context.getBean(JdbcTemplate.class).execute("DROP SCHEMA IF EXISTS " + schema + " CASCADE");
+        } finally {
+            context.close();
+        }
+    }
+
+    @Benchmark
+    public void registerNewUser() {
+        RegisterDto registerDto = new RegisterDto();
+        registerDto.setEmail("bench-" + runId + "-" + sequence.incrementAndGet() + "@example.com");
+        registerDto.setPassword("benchmark-password");
+        authService.register(registerDto);
+    }
+}
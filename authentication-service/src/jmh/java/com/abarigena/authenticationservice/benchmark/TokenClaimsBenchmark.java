@@ -0,0 +1,73 @@
+package com.abarigena.authenticationservice.benchmark;
+
+import com.abarigena.authenticationservice.dto.UserInfo;
+import com.abarigena.authenticationservice.entity.AuthUser;
+import com.abarigena.authenticationservice.entity.UserRole;
+import com.abarigena.authenticationservice.entity.UserStatus;
+import com.abarigena.authenticationservice.security.AccessTokenClaims;
+import io.jsonwebtoken.JwtParser;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.security.Keys;
+import org.openjdk.jmh.annotations.*;
+
+import javax.crypto.SecretKey;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+// Размер access токена и время кодирования/разбора: прежний формат (email + "roles") против компактного
+// (маска ролей, с email и без). Размер токена печатается при старте каждой конфигурации.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TokenClaimsBenchmark {
+
+    @Param({"legacy", "compact", "compact-no-email"})
+    public String format;
+
+    private SecretKey key;
+    private JwtParser parser;
+    private AuthUser user;
+    private String token;
+    private boolean compactRoles;
+    private boolean includeEmail;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        key = Keys.hmacShaKeyFor("benchmark-secret-benchmark-secret-benchmark-secret-benchmark-secret".getBytes(StandardCharsets.UTF_8));
+        parser = Jwts.parser().verifyWith(key).build();
+        user = AuthUser.builder()
+                .userId(UUID.randomUUID())
+                .email("some.passenger@example.com")
+                .passwordHash("{bcrypt}hash")
+                .status(UserStatus.ACTIVE)
+                .roles(Set.of(UserRole.USER, UserRole.DRIVER))
+                .build();
+        compactRoles = !"legacy".equals(format);
+        includeEmail = !"compact-no-email".equals(format);
+        token = encode();
+        System.out.printf("%n[%s] access token size: %d bytes%n", format, token.getBytes(StandardCharsets.US_ASCII).length);
+    }
+
+    @Benchmark
+    public String encode() {
+        Date now = new Date();
+        return AccessTokenClaims.write(Jwts.builder().setId(UUID.randomUUID().toString()), user, compactRoles, includeEmail)
+                .claim("gen", 0L)
+                .setIssuedAt(now)
+                .setExpiration(new Date(now.getTime() + 360_000))
+                .signWith(key, SignatureAlgorithm.HS512)
+                .compact();
+    }
+
+    @Benchmark
+    public UserInfo decode() {
+        return AccessTokenClaims.read(parser.parseSignedClaims(token).getPayload());
+    }
+}
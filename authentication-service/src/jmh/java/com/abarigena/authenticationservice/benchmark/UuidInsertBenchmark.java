@@ -0,0 +1,119 @@
+package com.abarigena.authenticationservice.benchmark;
+
+import com.abarigena.util.UuidV7;
+import org.openjdk.jmh.annotations.*;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+// Скорость вставки в таблицу с первичным ключом UUID: случайный v4 против упорядоченного v7.
+// Таблицы заполняются до prefillRows (десятки миллионов строк, заполнение занимает минуты) в одноразовой схеме
+// bench_uuid_insert_<runId>, которая удаляется после прогона. С -p reuseTables=true таблицы живут в постоянной
+// схеме bench_uuid_insert и переиспользуются между запусками (удалять ее вручную).
+// После прогона печатается объем WAL, записанный вставками.
+// Подключение: -Dbench.jdbc.url/-Dbench.jdbc.user/-Dbench.jdbc.password (по умолчанию БД из docker-compose).
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 10)
+@Measurement(iterations = 5, time = 30)
+@Fork(1)
+public class UuidInsertBenchmark {
+
+    private static final int BATCH_SIZE = 100;
+
+    // SQL-аналог UuidV7 для быстрого заполнения (до Postgres 18 встроенной функции нет)
+    private static final String UUID_V7_SQL = """
+            encode(set_bit(set_bit(overlay(uuid_send(gen_random_uuid())
+                placing substring(int8send(floor(extract(epoch FROM clock_timestamp()) * 1000)::bigint) FROM 3)
+                FROM 1 FOR 6), 52, 1), 53, 1), 'hex')::uuid""";
+
+    @Param({"v4", "v7"})
+    public String strategy;
+
+    @Param({"20000000"})
+    public long prefillRows;
+
+    @Param({"false"})
+    public boolean reuseTables;
+
+    private Connection connection;
+    private PreparedStatement insert;
+    private String schema;
+    private String table;
+    private String walStart;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        connection = DriverManager.getConnection(
+                System.getProperty("bench.jdbc.url", "jdbc:postgresql://localhost:5433/authDB?reWriteBatchedInserts=true"),
+                System.getProperty("bench.jdbc.user", System.getenv("DB_USERNAME")),
+                System.getProperty("bench.jdbc.password", System.getenv("DB_PASSWORD")));
+        schema = reuseTables ? "bench_uuid_insert" : "bench_uuid_insert_" + UUID.randomUUID().toString().substring(0, 8);
+        table = schema + ".bench_uuid_" + strategy;
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("CREATE SCHEMA IF NOT EXISTS " + schema);
+            statement.execute("CREATE TABLE IF NOT EXISTS " + table
+                    + " (id uuid PRIMARY KEY, created_at timestamp NOT NULL DEFAULT now(), payload varchar(64) NOT NULL)");
+            long existing = count(statement);
+            if (existing < prefillRows) {
+                String idExpression = "v7".equals(strategy) ? UUID_V7_SQL : "gen_random_uuid()";
+                statement.execute("INSERT INTO " + table + " (id, payload) SELECT " + idExpression
+                        + ", md5(g::text) FROM generate_series(1, " + (prefillRows - existing) + ") g");
+            }
+            statement.execute("VACUUM ANALYZE " + table);
+            walStart = currentWalLsn(statement);
+        }
+        insert = connection.prepareStatement("INSERT INTO " + table + " (id, payload) VALUES (?, ?)");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery("SELECT pg_wal_lsn_diff(pg_current_wal_lsn(), '" + walStart + "')")) {
+            rs.next();
+            System.out.printf("%n[%s] WAL written during run: %d MB, rows: %d%n",
+                    strategy, rs.getLong(1) / (1024 * 1024), count(statement));
+        }
+        insert.close();
+        try (Statement statement = connection.createStatement()) {
+            if (!reuseTables) {
+                statement.execute("DROP SCHEMA IF EXISTS " + schema + " CASCADE");
+            }
+        } finally {
+            connection.close();
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public int[] insertBatch() throws SQLException {
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            UUID id = "v7".equals(strategy) ? UuidV7.randomUUID() : UUID.randomUUID();
+            insert.setObject(1, id);
+            insert.setString(2, id.toString());
+            insert.addBatch();
+        }
+        return insert.executeBatch();
+    }
+
+    private long count(Statement statement) throws SQLException {
+        try (ResultSet rs = statement.executeQuery("SELECT count(*) FROM " + table)) {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+
+    private static String currentWalLsn(Statement statement) throws SQLException {
+        try (ResultSet rs = statement.executeQuery("SELECT pg_current_wal_lsn()")) {
+            rs.next();
+            return rs.getString(1);
+        }
+    }
+}
@@ -1,10 +1,14 @@
 package com.abarigena.authenticationservice.config;
 
+import com.abarigena.authenticationservice.security.BoundedPasswordEncoder;
 import com.abarigena.authenticationservice.security.UserDetailsServiceImpl;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.HttpMethod;
+import org.springframework.security.authorization.AuthorizationDecision;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
 import org.springframework.security.config.annotation.authentication.configuration.AuthenticationConfiguration;
@@ -13,8 +17,14 @@ import org.springframework.security.config.annotation.web.configuration.EnableWe
 import org.springframework.security.config.annotation.web.configurers.AbstractHttpConfigurer;
 import org.springframework.security.config.http.SessionCreationPolicy;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.DelegatingPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.crypto.password.Pbkdf2PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Map;
 // import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter; // Если будет JWT фильтр
 
 @Configuration
@@ -22,12 +32,41 @@ import org.springframework.security.web.SecurityFilterChain;
 @RequiredArgsConstructor
 public class SecurityConfig {
 
+    public static final String INTERNAL_TOKEN_HEADER = "X-Internal-Token";
+
     private final UserDetailsServiceImpl userDetailsService;
+    private final MeterRegistry meterRegistry;
     // private final JwtTokenProvider tokenProvider; Для фильтра
 
+    @Value("${app.security.password.algorithm}")
+    private String passwordAlgorithm;
+    @Value("${app.security.password.bcrypt-strength}")
+    private int bcryptStrength;
+    @Value("${app.security.password.hashing.threads}")
+    private int hashingThreads;
+    @Value("${app.security.password.hashing.queue-capacity}")
+    private int hashingQueueCapacity;
+    @Value("${app.security.password.hashing.timeout-ms}")
+    private long hashingTimeoutMs;
+    @Value("${app.security.password.hashing.retry-after-seconds}")
+    private long hashingRetryAfterSeconds;
+    @Value("${app.validation.internal-token}")
+    private String internalToken;
+
     @Bean
     public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+        // Хэши с префиксом {id}; старые хэши без префикса проверяются bcrypt и перехэшируются при логине
+        BCryptPasswordEncoder bcrypt = new BCryptPasswordEncoder(bcryptStrength);
+        Map<String, PasswordEncoder> encoders = Map.of(
+                "bcrypt", bcrypt,
+                "pbkdf2", Pbkdf2PasswordEncoder.defaultsForSpringSecurity_v5_8()
+        );
+        DelegatingPasswordEncoder delegating = new DelegatingPasswordEncoder(passwordAlgorithm, encoders);
+        delegating.setDefaultPasswordEncoderForMatches(bcrypt);
+
+        int threads = hashingThreads > 0 ? hashingThreads : Runtime.getRuntime().availableProcessors();
+        return new BoundedPasswordEncoder(delegating, threads, hashingQueueCapacity,
+                hashingTimeoutMs, hashingRetryAfterSeconds, meterRegistry);
     }
 
     @Bean
@@ -35,6 +74,8 @@ public class SecurityConfig {
         DaoAuthenticationProvider authProvider = new DaoAuthenticationProvider();
         authProvider.setUserDetailsService(userDetailsService);
         authProvider.setPasswordEncoder(passwordEncoder());
+        // Перехэширование при успешном логине, если сменились алгоритм или cost
+        authProvider.setUserDetailsPasswordService(userDetailsService);
         return authProvider;
     }
 
@@ -67,6 +108,10 @@ public class SecurityConfig {
                         .requestMatchers("/api/auth/reset-password").permitAll()
                         // Эндпоинт валидации может быть внутренним или требовать спец. прав
                         .requestMatchers("/api/auth/validate").permitAll() // Или .hasRole("API_GATEWAY") / .authenticated()
+                        // Только для сервисов внутри сети: вызывающий предъявляет общий секрет, gateway отвечает 404
+                        .requestMatchers(HttpMethod.POST, "/api/auth/validate/batch").access((authentication, context) ->
+                                new AuthorizationDecision(isInternalToken(context.getRequest().getHeader(INTERNAL_TOKEN_HEADER))))
+                        .requestMatchers(HttpMethod.GET, "/api/auth/.well-known/jwks.json").permitAll()
                         // Logout может требовать аутентификации, если используется stateful refresh token
                         .requestMatchers(HttpMethod.POST, "/api/auth/logout").permitAll() // Или .authenticated()
                         .anyRequest().authenticated() // Все остальные запросы требуют аутентификации (если они будут)
@@ -79,4 +124,12 @@ public class SecurityConfig {
 
         return http.build();
     }
+
+    // Сравнение за постоянное время; без настроенного секрета внутренний эндпоинт закрыт
+    private boolean isInternalToken(String presented) {
+        if (internalToken.isBlank() || presented == null) {
+            return false;
+        }
+        return MessageDigest.isEqual(internalToken.getBytes(StandardCharsets.UTF_8), presented.getBytes(StandardCharsets.UTF_8));
+    }
 }
\ No newline at end of file
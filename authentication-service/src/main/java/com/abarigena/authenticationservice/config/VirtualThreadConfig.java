@@ -0,0 +1,34 @@
+package com.abarigena.authenticationservice.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+// Режим виртуальных потоков включается spring.threads.virtual.enabled: Boot переводит на них Tomcat,
+// @Scheduled/@Async и контейнеры Kafka listener'ов, а вместе с ними - транзакционные вызовы сервисов
+// и отправку в Kafka из этих потоков. bcrypt остается на своем пуле платформенных потоков (BoundedPasswordEncoder):
+// это CPU-работа, виртуальные потоки ее не ускорят.
+@Configuration
+@ConditionalOnProperty(name = "spring.threads.virtual.enabled", havingValue = "true")
+public class VirtualThreadConfig {
+
+    // Оборачиваем пул Hikari семафором того же размера (см. ConcurrencyLimitingDataSource)
+    @Bean
+    @ConditionalOnProperty(name = "app.jdbc.concurrency-limit.enabled", havingValue = "true", matchIfMissing = true)
+    public static BeanPostProcessor concurrencyLimitingDataSourcePostProcessor(ObjectProvider<MeterRegistry> meterRegistry) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof HikariDataSource hikari) {
+                    return new ConcurrencyLimitingDataSource(hikari, hikari.getMaximumPoolSize(),
+                            hikari.getConnectionTimeout(), meterRegistry.getObject());
+                }
+                return bean;
+            }
+        };
+    }
+}
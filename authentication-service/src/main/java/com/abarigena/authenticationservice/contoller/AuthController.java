@@ -3,20 +3,27 @@ package com.abarigena.authenticationservice.contoller;
 
 import com.abarigena.authenticationservice.dto.*;
 import com.abarigena.authenticationservice.exception.InvalidTokenException;
+import com.abarigena.authenticationservice.security.JwtKeyManager;
 import com.abarigena.authenticationservice.service.AuthService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
 @RestController
 @RequestMapping("/api/auth")
 @RequiredArgsConstructor
 public class AuthController {
 
     private final AuthService authService;
+    private final JwtKeyManager jwtKeyManager;
 
     @PostMapping("/register")
     public ResponseEntity<?> registerUser(@Valid @RequestBody RegisterDto registerDto) {
@@ -76,6 +83,20 @@ public class AuthController {
         // Другие ошибки обработаются GlobalExceptionHandler
     }
 
+    // Внутренний эндпоинт: пакетная проверка, на каждый токен - результат или причина отказа
+    @PostMapping("/validate/batch")
+    public ResponseEntity<List<TokenValidationResult>> validateTokens(@Valid @RequestBody BatchValidateTokenDto batchValidateTokenDto) {
+        return ResponseEntity.ok(authService.validateTokens(batchValidateTokenDto));
+    }
+
+    // Публичные ключи для локальной проверки токенов (gateway, другие сервисы)
+    @GetMapping("/.well-known/jwks.json")
+    public ResponseEntity<Map<String, Object>> jwks() {
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.maxAge(Duration.ofMinutes(5)).cachePublic())
+                .body(Map.of("keys", jwtKeyManager.publicJwks()));
+    }
+
     // Опциональный эндпоинт
     @PostMapping("/logout")
     public ResponseEntity<?> logoutUser(@RequestBody(required = false) LogoutDto logoutDto) { // DTO может быть необязательным
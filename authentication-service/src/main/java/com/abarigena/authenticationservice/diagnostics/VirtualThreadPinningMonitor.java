@@ -0,0 +1,105 @@
+package com.abarigena.authenticationservice.diagnostics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordingStream;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Следит за блокировкой carrier-потоков виртуальными потоками (synchronized, native) через JFR-событие
+// jdk.VirtualThreadPinned. Счетчики по месту в коде отдаются эндпоинтом /actuator/pinning.
+@Component
+@ConditionalOnProperty(name = "spring.threads.virtual.enabled", havingValue = "true")
+@Slf4j
+public class VirtualThreadPinningMonitor implements DisposableBean {
+
+    private static final int MAX_TRACKED_SITES = 200;
+    private static final int MAX_FRAMES = 12;
+
+    private final Duration threshold;
+    private final Counter pinnedEvents;
+    private final Timer pinnedDuration;
+    private final Map<String, AtomicLong> pinnedBySite = new ConcurrentHashMap<>();
+    private RecordingStream recordingStream;
+
+    public VirtualThreadPinningMonitor(MeterRegistry meterRegistry,
+                                       @Value("${app.virtual-threads.pinning-threshold-ms}") long thresholdMs) {
+        this.threshold = Duration.ofMillis(thresholdMs);
+        this.pinnedEvents = meterRegistry.counter("jvm.threads.virtual.pinned");
+        this.pinnedDuration = Timer.builder("jvm.threads.virtual.pinned.duration").register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        recordingStream = new RecordingStream();
+        recordingStream.enable("jdk.VirtualThreadPinned").withThreshold(threshold).withStackTrace();
+        recordingStream.onEvent("jdk.VirtualThreadPinned", this::onPinned);
+        recordingStream.startAsync();
+        log.info("Virtual thread pinning monitor started, threshold {} ms", threshold.toMillis());
+    }
+
+    private void onPinned(RecordedEvent event) {
+        pinnedEvents.increment();
+        pinnedDuration.record(event.getDuration());
+        String site = site(event);
+        AtomicLong count = pinnedBySite.get(site);
+        if (count == null && pinnedBySite.size() < MAX_TRACKED_SITES) {
+            count = pinnedBySite.computeIfAbsent(site, key -> {
+                log.warn("Virtual thread pinned for {} ms at {}", event.getDuration().toMillis(), key);
+                return new AtomicLong();
+            });
+        }
+        if (count != null) {
+            count.incrementAndGet();
+        }
+    }
+
+    // Первый кадр кода приложения, иначе верхний кадр стека
+    private static String site(RecordedEvent event) {
+        if (event.getStackTrace() == null || event.getStackTrace().getFrames().isEmpty()) {
+            return "unknown";
+        }
+        RecordedFrame top = event.getStackTrace().getFrames().get(0);
+        int depth = 0;
+        for (RecordedFrame frame : event.getStackTrace().getFrames()) {
+            if (depth++ >= MAX_FRAMES) {
+                break;
+            }
+            if (frame.getMethod().getType().getName().startsWith("com.abarigena.")) {
+                return format(frame);
+            }
+        }
+        return format(top);
+    }
+
+    private static String format(RecordedFrame frame) {
+        return frame.getMethod().getType().getName() + "." + frame.getMethod().getName() + ":" + frame.getLineNumber();
+    }
+
+    public Map<String, Long> pinnedBySite() {
+        Map<String, Long> snapshot = new TreeMap<>();
+        pinnedBySite.forEach((site, count) -> snapshot.put(site, count.get()));
+        return snapshot;
+    }
+
+    @Override
+    public void destroy() {
+        if (recordingStream != null) {
+            recordingStream.close();
+        }
+    }
+}
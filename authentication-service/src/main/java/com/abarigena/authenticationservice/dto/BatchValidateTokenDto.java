@@ -0,0 +1,17 @@
+package com.abarigena.authenticationservice.dto;
+
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchValidateTokenDto {
+
+    @NotNull(message = "Tokens cannot be null")
+    private List<String> tokens; // Access токены; размер ограничен app.validation.batch.max-size
+}
@@ -9,4 +9,6 @@ import lombok.AllArgsConstructor;
 @AllArgsConstructor
 public class LogoutDto {
     private String refreshToken;
+    private String accessToken; // Необязательно: отзывается сразу, а не по истечении
+    private boolean allDevices; // Отозвать все refresh токены пользователя
 }
\ No newline at end of file
@@ -0,0 +1,23 @@
+package com.abarigena.authenticationservice.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Результат проверки одного токена из пакета: userInfo для валидного, error - причина отказа
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TokenValidationResult {
+    private boolean valid;
+    private UserInfo userInfo;
+    private String error;
+
+    public static TokenValidationResult valid(UserInfo userInfo) {
+        return new TokenValidationResult(true, userInfo, null);
+    }
+
+    public static TokenValidationResult invalid(String error) {
+        return new TokenValidationResult(false, null, error);
+    }
+}
@@ -6,15 +6,14 @@ import lombok.Setter;
 import lombok.Builder;
 import lombok.NoArgsConstructor;
 import lombok.AllArgsConstructor;
+import com.abarigena.authenticationservice.security.RoleAuthorities;
 import org.springframework.security.core.GrantedAuthority;
-import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 
 import java.time.LocalDateTime;
 import java.util.Collection;
 import java.util.Set;
 import java.util.UUID;
-import java.util.stream.Collectors;
 
 @Entity
 @Table(name = "auth_users", uniqueConstraints = {
@@ -28,7 +27,7 @@ import java.util.stream.Collectors;
 public class AuthUser implements UserDetails {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.UUID)
+    @UuidV7Id // Упорядочен по времени: вставки в конец индекса; этот же id - ключ user_profiles и сообщений Kafka
     private UUID userId;
 
     @Column(nullable = false, unique = true)
@@ -64,9 +63,8 @@ public class AuthUser implements UserDetails {
 
     @Override
     public Collection<? extends GrantedAuthority> getAuthorities() {
-        return this.roles.stream()
-                .map(role -> new SimpleGrantedAuthority("ROLE_" + role)) // Префикс ROLE_ важен для Spring Security
-                .collect(Collectors.toSet());
+        // Готовый неизменяемый набор "ROLE_*" для этой комбинации ролей (префикс ROLE_ важен для Spring Security)
+        return RoleAuthorities.of(this.roles);
     }
 
     @Override
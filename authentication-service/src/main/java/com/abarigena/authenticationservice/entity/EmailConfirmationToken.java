@@ -8,14 +8,16 @@ import java.time.LocalDateTime;
 import java.util.UUID;
 
 @Entity
-@Table(name = "email_confirmation_tokens")
+@Table(name = "email_confirmation_tokens", indexes = {
+        @Index(name = "idx_email_confirmation_tokens_expires_at", columnList = "expiresAt") // Для ExpiredTokenSweeper
+})
 @Data
 @NoArgsConstructor
 public class EmailConfirmationToken {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.UUID) // Можно использовать UUID для токена
-    private UUID id; // Первичный ключ таблицы
+    @UuidV7Id
+    private UUID id; // Первичный ключ таблицы; сам токен - отдельное случайное значение
 
     @Column(nullable = false, unique = true)
     private String token; // Сам токен подтверждения
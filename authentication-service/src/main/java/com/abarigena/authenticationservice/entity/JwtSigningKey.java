@@ -0,0 +1,39 @@
+package com.abarigena.authenticationservice.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "jwt_signing_keys", indexes = {
+        @Index(name = "idx_jwt_signing_keys_algorithm_created", columnList = "algorithm, createdAt")
+})
+@Data
+@NoArgsConstructor
+public class JwtSigningKey {
+
+    @Id
+    @Column(length = 64)
+    private String kid; // Идентификатор ключа, попадает в заголовок токена
+
+    @Column(nullable = false, length = 16)
+    private String algorithm; // RS256 или EdDSA
+
+    @Column(nullable = false, columnDefinition = "TEXT")
+    private String publicKey; // X.509, Base64
+
+    @Column(nullable = false, columnDefinition = "TEXT")
+    private String privateKey; // PKCS#8, зашифрован KEK (JwtKeyManager): "v1:" + Base64(iv || ciphertext)
+
+    @Column(nullable = false, updatable = false)
+    private LocalDateTime createdAt = LocalDateTime.now();
+
+    public JwtSigningKey(String kid, String algorithm, String publicKey, String privateKey) {
+        this.kid = kid;
+        this.algorithm = algorithm;
+        this.publicKey = publicKey;
+        this.privateKey = privateKey;
+    }
+}
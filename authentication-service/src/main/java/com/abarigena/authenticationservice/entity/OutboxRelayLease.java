@@ -0,0 +1,24 @@
+package com.abarigena.authenticationservice.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+// Аренда роли relay для outbox: пишет и продлевает OutboxRelay, транзакцию и соединение при этом не держит
+@Entity
+@Table(name = "outbox_relay_lease")
+@Data
+@NoArgsConstructor
+public class OutboxRelayLease {
+
+    @Id
+    private String name;
+
+    @Column(nullable = false)
+    private String owner; // Идентификатор инстанса
+
+    @Column(nullable = false)
+    private LocalDateTime leasedUntil;
+}
@@ -8,13 +8,15 @@ import java.time.LocalDateTime;
 import java.util.UUID;
 
 @Entity
-@Table(name = "password_reset_tokens")
+@Table(name = "password_reset_tokens", indexes = {
+        @Index(name = "idx_password_reset_tokens_expires_at", columnList = "expiresAt") // Для ExpiredTokenSweeper
+})
 @Data
 @NoArgsConstructor
 public class PasswordResetToken {
     // Поля как в EmailConfirmationToken: id, token, user, createdAt, expiresAt, usedAt
     @Id
-    @GeneratedValue(strategy = GenerationType.UUID)
+    @UuidV7Id
     private UUID id;
 
     @Column(nullable = false, unique = true)
@@ -0,0 +1,42 @@
+package com.abarigena.authenticationservice.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+// Пишется RefreshTokenStore напрямую, сам токен не хранится - только SHA-256
+@Entity
+@Table(name = "refresh_tokens", indexes = {
+        @Index(name = "idx_refresh_tokens_user_id", columnList = "userId"),
+        @Index(name = "idx_refresh_tokens_expires_at", columnList = "expiresAt")
+})
+@Data
+@NoArgsConstructor
+public class RefreshToken {
+
+    @Id
+    private UUID id; // jti токена
+
+    @Column(nullable = false)
+    private UUID userId;
+
+    @Column(nullable = false, unique = true, length = 64)
+    private String tokenHash;
+
+    @Column(nullable = false)
+    private long generation; // Поколение токенов пользователя на момент выдачи
+
+    @Column(nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(nullable = false)
+    private LocalDateTime expiresAt;
+
+    private LocalDateTime revokedAt;
+
+    @Column(nullable = false)
+    private boolean rotated; // Отозван из-за ротации: повторное предъявление = кража токена
+}
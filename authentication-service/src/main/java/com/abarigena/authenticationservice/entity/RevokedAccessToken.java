@@ -0,0 +1,28 @@
+package com.abarigena.authenticationservice.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+// Отозванный access токен (logout с одного устройства). Хранится до истечения токена,
+// чтобы denylist после рестарта инстанса не пропустил его снова
+@Entity
+@Table(name = "revoked_access_tokens", indexes = @Index(name = "idx_revoked_access_tokens_expires_at", columnList = "expiresAt"))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RevokedAccessToken {
+
+    @Id
+    private String tokenId;
+
+    @Column(nullable = false)
+    private UUID userId;
+
+    @Column(nullable = false)
+    private LocalDateTime expiresAt;
+}
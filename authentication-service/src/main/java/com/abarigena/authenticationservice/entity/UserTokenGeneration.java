@@ -0,0 +1,25 @@
+package com.abarigena.authenticationservice.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+// Счетчик поколений refresh токенов: увеличение отзывает все ранее выданные токены пользователя
+@Entity
+@Table(name = "user_token_generations")
+@Data
+@NoArgsConstructor
+public class UserTokenGeneration {
+
+    @Id
+    private UUID userId;
+
+    @Column(nullable = false)
+    private long generation;
+
+    @Column(nullable = false)
+    private LocalDateTime updatedAt;
+}
@@ -0,0 +1,64 @@
+package com.abarigena.authenticationservice.kafka;
+
+import com.abarigena.authenticationservice.security.AccessTokenDenylist;
+import com.abarigena.authenticationservice.security.UserDetailsServiceImpl;
+import com.abarigena.authenticationservice.service.RegisteredEmailFilter;
+import com.abarigena.dto.kafka.AccessTokensRevokedEvent;
+import com.abarigena.dto.kafka.UserEmailVerifiedEvent;
+import com.abarigena.dto.kafka.UserPasswordChangedEvent;
+import com.abarigena.dto.kafka.UserRegisteredEvent;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.kafka.annotation.KafkaHandler;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.messaging.handler.annotation.Payload;
+import org.springframework.stereotype.Service;
+
+// Каждый инстанс читает auth-events своей группой (уникальный group-id), чтобы получить все отзывы токенов
+// и изменения пользователей, сделанные другими инстансами
+@Service
+@RequiredArgsConstructor
+@Slf4j
+@KafkaListener(topics = "${spring.kafka.topic.access-tokens-revoked}",
+        groupId = "${app.revocation.consumer-group}",
+        containerFactory = "kafkaListenerContainerFactory")
+public class KafkaConsumerService {
+
+    private final AccessTokenDenylist accessTokenDenylist;
+    private final UserDetailsServiceImpl userDetailsService;
+    private final RegisteredEmailFilter registeredEmailFilter;
+
+    @KafkaHandler
+    public void listenAccessTokensRevoked(@Payload AccessTokensRevokedEvent event) {
+        log.debug("Received AccessTokensRevokedEvent for userId: {}", event.getUserId());
+        try {
+            accessTokenDenylist.apply(event);
+            if (event.getTokenId() == null) {
+                userDetailsService.evictUser(event.getUserId());
+            }
+        } catch (Exception e) {
+            log.error("Error processing AccessTokensRevokedEvent for userId {}: {}", event.getUserId(), e.getMessage(), e);
+        }
+    }
+
+    // Регистрации на других инстансах, чтобы их адреса не считались заведомо новыми
+    @KafkaHandler
+    public void listenUserRegistered(@Payload UserRegisteredEvent event) {
+        registeredEmailFilter.add(event.getEmail());
+    }
+
+    @KafkaHandler
+    public void listenPasswordChanged(@Payload UserPasswordChangedEvent event) {
+        userDetailsService.evictUser(event.getUserId());
+    }
+
+    @KafkaHandler
+    public void listenEmailVerified(@Payload UserEmailVerifiedEvent event) {
+        userDetailsService.evictUser(event.getUserId());
+    }
+
+    // Остальные события auth-events этому инстансу не нужны
+    @KafkaHandler(isDefault = true)
+    public void ignore(Object event) {
+    }
+}
@@ -1,24 +1,35 @@
 package com.abarigena.authenticationservice.kafka;
 
 
+import com.abarigena.dto.kafka.AccessTokensRevokedEvent;
 import com.abarigena.dto.kafka.UserEmailVerifiedEvent;
 import com.abarigena.dto.kafka.UserPasswordChangedEvent;
 import com.abarigena.dto.kafka.UserRegisteredEvent;
+import com.abarigena.authenticationservice.entity.OutboxEvent;
+import com.abarigena.authenticationservice.repository.OutboxEventRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.Instant;
 import java.util.UUID;
 
+// События об изменениях пользователя пишутся в outbox в транзакции вызывающего кода (MANDATORY)
+// и доставляются OutboxRelay: событие не теряется, если запись в БД закоммичена, а Kafka недоступна.
+// Отзыв токенов тоже идет через outbox: потерянное событие оставило бы отозванный токен рабочим
+// на других инстансах до его истечения.
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class KafkaProducerService {
 
-    private final KafkaTemplate<String, Object> kafkaTemplate;
+    private final OutboxEventRepository outboxEventRepository;
+    private final ObjectMapper objectMapper;
 
     @Value("${spring.kafka.topic.user-registered}")
     private String userRegisteredTopic;
@@ -29,6 +40,10 @@ public class KafkaProducerService {
     @Value("${spring.kafka.topic.user-password-changed}")
     private String userPasswordChangedTopic;
 
+    @Value("${spring.kafka.topic.access-tokens-revoked}")
+    private String accessTokensRevokedTopic;
+
+    @Transactional(propagation = Propagation.MANDATORY)
     public void sendUserRegisteredEvent(UUID userId, String email, String firstName, String lastName, String phoneNumber) {
         UserRegisteredEvent event = UserRegisteredEvent.builder()
                 .userId(userId)
@@ -38,38 +53,51 @@ public class KafkaProducerService {
                 .phoneNumber(phoneNumber)
                 .timestamp(Instant.now())
                 .build();
-        try {
-            log.info("Sending UserRegisteredEvent for userId: {}", userId);
-            kafkaTemplate.send(userRegisteredTopic, userId.toString(), event); // Используем userId как ключ Kafka сообщения
-        } catch (Exception e) {
-            log.error("Error sending UserRegisteredEvent for userId {}: {}", userId, e.getMessage(), e);
-            // Здесь можно добавить логику повторной отправки или сохранения события для последующей отправки
-        }
+        log.info("Saving UserRegisteredEvent to outbox for userId: {}", userId);
+        saveToOutbox(userRegisteredTopic, userId.toString(), event); // Используем userId как ключ Kafka сообщения
     }
 
+    @Transactional(propagation = Propagation.MANDATORY)
     public void sendUserEmailVerifiedEvent(UUID userId) {
         UserEmailVerifiedEvent event = UserEmailVerifiedEvent.builder()
                 .userId(userId)
                 .timestamp(Instant.now())
                 .build();
-        try {
-            log.info("Sending UserEmailVerifiedEvent for userId: {}", userId);
-            kafkaTemplate.send(userEmailVerifiedTopic, userId.toString(), event);
-        } catch (Exception e) {
-            log.error("Error sending UserEmailVerifiedEvent for userId {}: {}", userId, e.getMessage(), e);
-        }
+        log.info("Saving UserEmailVerifiedEvent to outbox for userId: {}", userId);
+        saveToOutbox(userEmailVerifiedTopic, userId.toString(), event);
     }
 
+    @Transactional(propagation = Propagation.MANDATORY)
     public void sendUserPasswordChangedEvent(UUID userId) {
         UserPasswordChangedEvent event = UserPasswordChangedEvent.builder()
                 .userId(userId)
                 .timestamp(Instant.now())
                 .build();
+        log.info("Saving UserPasswordChangedEvent to outbox for userId: {}", userId);
+        saveToOutbox(userPasswordChangedTopic, userId.toString(), event);
+    }
+
+    // Вместе с изменением, которое отзывает токены (поколение или запись revoked_access_tokens)
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void sendAccessTokensRevokedEvent(UUID userId, String tokenId, long generation, Instant expiresAt) {
+        AccessTokensRevokedEvent event = AccessTokensRevokedEvent.builder()
+                .userId(userId)
+                .tokenId(tokenId)
+                .generation(generation)
+                .expiresAt(expiresAt)
+                .timestamp(Instant.now())
+                .build();
+        log.info("Saving AccessTokensRevokedEvent to outbox for userId: {}", userId);
+        saveToOutbox(accessTokensRevokedTopic, userId.toString(), event);
+    }
+
+    private void saveToOutbox(String topic, String key, Object event) {
         try {
-            log.info("Sending UserPasswordChangedEvent for userId: {}", userId);
-            kafkaTemplate.send(userPasswordChangedTopic, userId.toString(), event);
-        } catch (Exception e) {
-            log.error("Error sending UserPasswordChangedEvent for userId {}: {}", userId, e.getMessage(), e);
+            String payload = objectMapper.writeValueAsString(event);
+            outboxEventRepository.save(new OutboxEvent(topic, key, event.getClass().getName(), payload));
+        } catch (JsonProcessingException e) {
+            // Откатываем транзакцию: изменение без события хуже, чем ошибка запроса
+            throw new IllegalStateException("Failed to serialize " + event.getClass().getSimpleName(), e);
         }
     }
 
@@ -0,0 +1,208 @@
+package com.abarigena.authenticationservice.kafka;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Доставка событий из outbox_events в Kafka. Пачка читается, отправляется целиком (send'ы идут конвейером
+// в идемпотентный producer), после подтверждения брокером строки помечаются одним update.
+// Одновременно работает только один relay - тот, кто держит аренду в outbox_relay_lease. Аренда пишется
+// autocommit-запросом, поэтому пока ждем подтверждений Kafka ни транзакция, ни соединение из пула не заняты.
+// Если событие не отправилось, более поздние события того же ключа не помечаются - они уйдут повторно
+// вслед за ним, и порядок по ключу сохранится. Доставка at-least-once.
+@Component
+@Slf4j
+public class OutboxRelay {
+
+    private static final String LEASE_NAME = "outbox";
+
+    // Аренду берем, если она свободна, истекла или уже наша (тогда продлеваем)
+    private static final String ACQUIRE_LEASE_SQL = """
+            INSERT INTO outbox_relay_lease (name, owner, leased_until)
+            VALUES (?, ?, now() + make_interval(secs => ?))
+            ON CONFLICT (name) DO UPDATE SET owner = EXCLUDED.owner, leased_until = EXCLUDED.leased_until
+            WHERE outbox_relay_lease.owner = EXCLUDED.owner OR outbox_relay_lease.leased_until < now()
+            """;
+
+    private static final String RELEASE_LEASE_SQL = "UPDATE outbox_relay_lease SET leased_until = now() WHERE name = ? AND owner = ?";
+
+    private static final String SELECT_BATCH_SQL = """
+            SELECT id, topic, message_key, event_type, payload, created_at
+            FROM outbox_events WHERE sent_at IS NULL ORDER BY id LIMIT ?
+            """;
+
+    private static final String MARK_SENT_SQL = "UPDATE outbox_events SET sent_at = now() WHERE id = ANY(?)";
+
+    private static final String OLDEST_PENDING_SQL = "SELECT min(created_at) FROM outbox_events WHERE sent_at IS NULL";
+
+    private static final String PURGE_SENT_SQL = """
+            DELETE FROM outbox_events WHERE id IN (
+                SELECT id FROM outbox_events WHERE sent_at < ? LIMIT ? FOR UPDATE SKIP LOCKED
+            )
+            """;
+
+    private final KafkaTemplate<String, Object> kafkaTemplate;
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+    private final int batchSize;
+    private final long sendTimeoutMs;
+    private final long retentionMs;
+    private final long leaseMs;
+    private final String instanceId = UUID.randomUUID().toString();
+
+    private final Counter published;
+    private final Counter failed;
+    private final Timer batchTimer;
+    private final Timer deliveryDelay;
+    private final AtomicLong lagMs = new AtomicLong();
+
+    private record PendingEvent(long id, String topic, String key, String eventType, String payload, LocalDateTime createdAt) {
+    }
+
+    public OutboxRelay(KafkaTemplate<String, Object> kafkaTemplate,
+                       JdbcTemplate jdbcTemplate,
+                       ObjectMapper objectMapper,
+                       MeterRegistry meterRegistry,
+                       @Value("${app.outbox.batch-size}") int batchSize,
+                       @Value("${app.outbox.send-timeout-ms}") long sendTimeoutMs,
+                       @Value("${app.outbox.retention-ms}") long retentionMs,
+                       @Value("${app.outbox.lease-ms}") long leaseMs) {
+        this.kafkaTemplate = kafkaTemplate;
+        this.jdbcTemplate = jdbcTemplate;
+        this.objectMapper = objectMapper;
+        this.batchSize = batchSize;
+        this.sendTimeoutMs = sendTimeoutMs;
+        this.retentionMs = retentionMs;
+        // Аренда должна переживать самую долгую пачку, иначе второй relay начнет отправлять параллельно
+        if (leaseMs <= sendTimeoutMs) {
+            throw new IllegalStateException("app.outbox.lease-ms must be greater than app.outbox.send-timeout-ms");
+        }
+        this.leaseMs = leaseMs;
+
+        this.published = meterRegistry.counter("auth.outbox.events", "result", "published");
+        this.failed = meterRegistry.counter("auth.outbox.events", "result", "failed");
+        this.batchTimer = Timer.builder("auth.outbox.relay.batch").register(meterRegistry);
+        // Время от записи события до подтверждения брокером
+        this.deliveryDelay = Timer.builder("auth.outbox.delivery.delay").register(meterRegistry);
+        // Возраст самого старого неотправленного события
+        Gauge.builder("auth.outbox.lag", lagMs, AtomicLong::get)
+                .baseUnit("milliseconds")
+                .register(meterRegistry);
+    }
+
+    // Пока пачки полные - продолжаем, чтобы разгрести накопившееся без ожидания следующего тика
+    @Scheduled(fixedDelayString = "${app.outbox.poll-interval-ms}")
+    public void relay() {
+        int relayed;
+        do {
+            relayed = batchTimer.record(this::relayBatch);
+        } while (relayed == batchSize);
+        updateLag();
+    }
+
+    // Отправленные события больше не нужны
+    @Scheduled(fixedDelayString = "${app.outbox.purge-interval-ms}")
+    public void purgeSent() {
+        Timestamp cutoff = Timestamp.valueOf(LocalDateTime.now().minusNanos(retentionMs * 1_000_000));
+        int deleted;
+        do {
+            deleted = jdbcTemplate.update(PURGE_SENT_SQL, cutoff, batchSize);
+        } while (deleted == batchSize);
+    }
+
+    // Отдаем аренду сразу, чтобы другой инстанс не ждал ее истечения
+    @PreDestroy
+    public void releaseLease() {
+        jdbcTemplate.update(RELEASE_LEASE_SQL, LEASE_NAME, instanceId);
+    }
+
+    // Возвращает число доставленных событий; 0 - аренда у другого инстанса или была ошибка
+    private int relayBatch() {
+        if (jdbcTemplate.update(ACQUIRE_LEASE_SQL, LEASE_NAME, instanceId, leaseMs / 1000.0) == 0) {
+            return 0;
+        }
+
+        List<PendingEvent> batch = jdbcTemplate.query(SELECT_BATCH_SQL, (rs, rowNum) -> new PendingEvent(
+                rs.getLong("id"),
+                rs.getString("topic"),
+                rs.getString("message_key"),
+                rs.getString("event_type"),
+                rs.getString("payload"),
+                rs.getTimestamp("created_at").toLocalDateTime()), batchSize);
+        if (batch.isEmpty()) {
+            return 0;
+        }
+
+        List<CompletableFuture<SendResult<String, Object>>> futures = new ArrayList<>(batch.size());
+        for (PendingEvent event : batch) {
+            futures.add(send(event));
+        }
+
+        // Один общий дедлайн на пачку - время ожидания ограничено send-timeout-ms и укладывается в аренду
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(sendTimeoutMs);
+        Set<String> failedKeys = new HashSet<>();
+        List<Long> sentIds = new ArrayList<>(batch.size());
+        LocalDateTime now = LocalDateTime.now();
+        for (int i = 0; i < batch.size(); i++) {
+            PendingEvent event = batch.get(i);
+            if (failedKeys.contains(event.key())) {
+                continue; // Более раннее событие ключа не ушло - это уйдет повторно после него
+            }
+            try {
+                futures.get(i).get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                sentIds.add(event.id());
+                deliveryDelay.record(Duration.between(event.createdAt(), now));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (Exception e) {
+                failedKeys.add(event.key());
+                log.error("Failed to relay outbox event {} ({}): {}", event.id(), event.eventType(), e.getMessage());
+            }
+        }
+
+        if (!sentIds.isEmpty()) {
+            jdbcTemplate.update(MARK_SENT_SQL, ps -> ps.setArray(1, ps.getConnection().createArrayOf("bigint", sentIds.toArray())));
+        }
+        published.increment(sentIds.size());
+        failed.increment(batch.size() - sentIds.size());
+        log.debug("Relayed {} of {} outbox events", sentIds.size(), batch.size());
+        return sentIds.size() == batch.size() ? batch.size() : 0;
+    }
+
+    private CompletableFuture<SendResult<String, Object>> send(PendingEvent event) {
+        try {
+            Object payload = objectMapper.readValue(event.payload(), Class.forName(event.eventType()));
+            return kafkaTemplate.send(event.topic(), event.key(), payload);
+        } catch (Exception e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    private void updateLag() {
+        Timestamp oldest = jdbcTemplate.queryForObject(OLDEST_PENDING_SQL, Timestamp.class);
+        lagMs.set(oldest == null ? 0 : Math.max(0, Duration.between(oldest.toLocalDateTime(), LocalDateTime.now()).toMillis()));
+    }
+}
@@ -1,6 +1,7 @@
 package com.abarigena.authenticationservice.repository;
 
 import com.abarigena.authenticationservice.entity.AuthUser;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
@@ -10,7 +11,13 @@ import java.util.UUID;
 @Repository
 public interface AuthUserRepository extends JpaRepository<AuthUser, UUID> {
 
+    // Роли подтягиваются join'ом в том же запросе, а не отдельным select по user_roles
+    @EntityGraph(attributePaths = "roles")
     Optional<AuthUser> findByEmail(String email);
 
+    @Override
+    @EntityGraph(attributePaths = "roles")
+    Optional<AuthUser> findById(UUID userId);
+
     boolean existsByEmail(String email);
 }
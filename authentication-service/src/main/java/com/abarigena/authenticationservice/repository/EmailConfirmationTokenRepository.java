@@ -2,12 +2,21 @@ package com.abarigena.authenticationservice.repository;
 
 import com.abarigena.authenticationservice.entity.EmailConfirmationToken;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.Optional;
 import java.util.UUID;
 
 @Repository
 public interface EmailConfirmationTokenRepository extends JpaRepository<EmailConfirmationToken, UUID> {
     Optional<EmailConfirmationToken> findByToken(String token);
+
+    // Отмечает токен подтвержденным, если он еще не был использован
+    @Modifying
+    @Query("update EmailConfirmationToken t set t.confirmedAt = :confirmedAt where t.id = :id and t.confirmedAt is null")
+    int markConfirmed(@Param("id") UUID id, @Param("confirmedAt") LocalDateTime confirmedAt);
 }
\ No newline at end of file
@@ -0,0 +1,15 @@
+package com.abarigena.authenticationservice.repository;
+
+import com.abarigena.authenticationservice.entity.JwtSigningKey;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface JwtSigningKeyRepository extends JpaRepository<JwtSigningKey, String> {
+
+    // Ключи, которыми еще могут быть подписаны живые токены, новые первыми
+    List<JwtSigningKey> findByAlgorithmAndCreatedAtAfterOrderByCreatedAtDesc(String algorithm, LocalDateTime createdAfter);
+}
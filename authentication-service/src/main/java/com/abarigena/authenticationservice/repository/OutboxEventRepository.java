@@ -0,0 +1,9 @@
+package com.abarigena.authenticationservice.repository;
+
+import com.abarigena.authenticationservice.entity.OutboxEvent;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface OutboxEventRepository extends JpaRepository<OutboxEvent, Long> {
+}
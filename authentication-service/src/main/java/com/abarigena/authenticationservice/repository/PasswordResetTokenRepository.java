@@ -2,12 +2,21 @@ package com.abarigena.authenticationservice.repository;
 
 import com.abarigena.authenticationservice.entity.PasswordResetToken;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.Optional;
 import java.util.UUID;
 
 @Repository
 public interface PasswordResetTokenRepository extends JpaRepository<PasswordResetToken, UUID> {
     Optional<PasswordResetToken> findByToken(String token);
+
+    // Отмечает токен использованным, если он еще не был использован
+    @Modifying
+    @Query("update PasswordResetToken t set t.usedAt = :usedAt where t.id = :id and t.usedAt is null")
+    int markUsed(@Param("id") UUID id, @Param("usedAt") LocalDateTime usedAt);
 }
@@ -0,0 +1,14 @@
+package com.abarigena.authenticationservice.repository;
+
+import com.abarigena.authenticationservice.entity.UserTokenGeneration;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface UserTokenGenerationRepository extends JpaRepository<UserTokenGeneration, UUID> {
+    List<UserTokenGeneration> findByUpdatedAtAfter(LocalDateTime since);
+}
@@ -0,0 +1,60 @@
+package com.abarigena.authenticationservice.security;
+
+import com.abarigena.authenticationservice.dto.UserInfo;
+import com.abarigena.authenticationservice.entity.AuthUser;
+import com.abarigena.security.RoleMask;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtBuilder;
+import org.springframework.security.core.GrantedAuthority;
+
+import java.util.Collection;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+// Формат claims access токена.
+// Компактный: роли - битовая маска "rm" (RoleMask), email можно не класть в токен.
+// Прежний: "roles" - массив "ROLE_*" и всегда email. Разбор понимает оба формата на время миграции.
+public final class AccessTokenClaims {
+
+    static final String EMAIL = "email";
+    static final String ROLES = "roles";
+
+    private AccessTokenClaims() {
+    }
+
+    public static JwtBuilder write(JwtBuilder builder, AuthUser user, boolean compactRoles, boolean includeEmail) {
+        builder.setSubject(user.getUserId().toString());
+        if (includeEmail) {
+            builder.claim(EMAIL, user.getEmail());
+        }
+        if (compactRoles) {
+            builder.claim(RoleMask.CLAIM, RoleAuthorities.mask(user.getRoles()));
+        } else {
+            Set<String> roles = user.getAuthorities().stream()
+                    .map(GrantedAuthority::getAuthority)
+                    .collect(Collectors.toSet());
+            builder.claim(ROLES, roles);
+        }
+        return builder;
+    }
+
+    public static UserInfo read(Claims claims) {
+        return UserInfo.builder()
+                .userId(UUID.fromString(claims.getSubject()))
+                .email(claims.get(EMAIL, String.class)) // null, если email не кладется в токен
+                .roles(readRoles(claims))
+                .build();
+    }
+
+    private static Set<String> readRoles(Claims claims) {
+        Integer mask = claims.get(RoleMask.CLAIM, Integer.class);
+        if (mask != null) {
+            return RoleMask.authorities(mask);
+        }
+        if (claims.get(ROLES) instanceof Collection<?> roles) {
+            return roles.stream().map(String::valueOf).collect(Collectors.toUnmodifiableSet());
+        }
+        return Set.of();
+    }
+}
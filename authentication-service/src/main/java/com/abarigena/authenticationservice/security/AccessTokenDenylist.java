@@ -0,0 +1,216 @@
+package com.abarigena.authenticationservice.security;
+
+import com.abarigena.authenticationservice.entity.RevokedAccessToken;
+import com.abarigena.authenticationservice.kafka.KafkaProducerService;
+import com.abarigena.authenticationservice.repository.RevokedAccessTokenRepository;
+import com.abarigena.authenticationservice.repository.UserTokenGenerationRepository;
+import com.abarigena.authenticationservice.util.BloomFilter;
+import com.abarigena.dto.kafka.AccessTokensRevokedEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Список отозванных access токенов. Подавляющее большинство токенов не отозвано, поэтому сначала
+// проверяем Bloom filter (без блокировок и аллокаций), а точные множества смотрим только при возможном попадании.
+// Записи живут не дольше access токена, фильтр периодически пересобирается из точных множеств.
+// Синхронизация между инстансами - через событие AccessTokensRevokedEvent в auth-events.
+// После рестарта состояние восстанавливается из БД: поколения - user_token_generations, jti - revoked_access_tokens.
+@Component
+@Slf4j
+public class AccessTokenDenylist {
+
+    private final KafkaProducerService kafkaProducerService;
+    private final UserTokenGenerationRepository generationRepository;
+    private final RevokedAccessTokenRepository revokedAccessTokenRepository;
+    private final long accessTokenExpirationMs;
+    private final long expectedEntries;
+    private final double falsePositiveRate;
+
+    // userId -> минимальное допустимое поколение токенов
+    private final Map<UUID, UserRevocation> userRevocations = new ConcurrentHashMap<>();
+    // jti -> момент истечения отозванного токена
+    private final Map<String, Instant> revokedTokenIds = new ConcurrentHashMap<>();
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private volatile BloomFilter filter;
+
+    private final Counter filterNegatives;
+    private final Counter falsePositives;
+    private final Counter revokedHits;
+
+    private record UserRevocation(long minGeneration, Instant expiresAt) {
+    }
+
+    public AccessTokenDenylist(KafkaProducerService kafkaProducerService,
+                               UserTokenGenerationRepository generationRepository,
+                               RevokedAccessTokenRepository revokedAccessTokenRepository,
+                               MeterRegistry meterRegistry,
+                               @Value("${jwt.expiration-ms}") long accessTokenExpirationMs,
+                               @Value("${app.revocation.expected-entries}") long expectedEntries,
+                               @Value("${app.revocation.false-positive-rate}") double falsePositiveRate) {
+        this.kafkaProducerService = kafkaProducerService;
+        this.generationRepository = generationRepository;
+        this.revokedAccessTokenRepository = revokedAccessTokenRepository;
+        this.accessTokenExpirationMs = accessTokenExpirationMs;
+        this.expectedEntries = expectedEntries;
+        this.falsePositiveRate = falsePositiveRate;
+        this.filter = new BloomFilter(expectedEntries, falsePositiveRate);
+
+        this.filterNegatives = meterRegistry.counter("auth.denylist.checks", "result", "filter_negative");
+        this.falsePositives = meterRegistry.counter("auth.denylist.checks", "result", "false_positive");
+        this.revokedHits = meterRegistry.counter("auth.denylist.checks", "result", "revoked");
+        Gauge.builder("auth.denylist.entries", this, denylist -> denylist.userRevocations.size() + denylist.revokedTokenIds.size())
+                .register(meterRegistry);
+    }
+
+    // Поколения, измененные за последнее время жизни access токена, могли отозвать еще живые токены;
+    // отозванные jti хранятся до истечения самих токенов
+    @PostConstruct
+    public void init() {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime since = now.minusNanos(accessTokenExpirationMs * 1_000_000);
+        generationRepository.findByUpdatedAtAfter(since).forEach(generation -> addUser(
+                generation.getUserId(),
+                generation.getGeneration(),
+                generation.getUpdatedAt().atZone(ZoneId.systemDefault()).toInstant().plusMillis(accessTokenExpirationMs)));
+        revokedAccessTokenRepository.findByExpiresAtAfter(now).forEach(token -> addToken(
+                token.getTokenId(),
+                token.getExpiresAt().atZone(ZoneId.systemDefault()).toInstant()));
+        log.info("Access token denylist initialized with {} user revocations and {} token revocations",
+                userRevocations.size(), revokedTokenIds.size());
+    }
+
+    public boolean isRevoked(VerifiedToken token) {
+        UUID userId = token.userInfo().getUserId();
+        BloomFilter current = filter;
+        boolean userCandidate = current.mightContain(userKey(userId));
+        boolean tokenCandidate = token.tokenId() != null && current.mightContain(tokenKey(token.tokenId()));
+        if (!userCandidate && !tokenCandidate) {
+            filterNegatives.increment();
+            return false;
+        }
+
+        UserRevocation revocation = userCandidate ? userRevocations.get(userId) : null;
+        boolean revoked = (revocation != null && token.generation() < revocation.minGeneration())
+                || (tokenCandidate && revokedTokenIds.containsKey(token.tokenId()));
+        (revoked ? revokedHits : falsePositives).increment();
+        return revoked;
+    }
+
+    // Все access токены пользователя с поколением ниже generation (смена пароля, блокировка, logout со всех устройств).
+    // Вызывается в транзакции, увеличившей поколение: событие попадает в outbox вместе с ним,
+    // а в память - только после коммита
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void revokeUser(UUID userId, long generation) {
+        Instant expiresAt = Instant.now().plusMillis(accessTokenExpirationMs);
+        kafkaProducerService.sendAccessTokensRevokedEvent(userId, null, generation, expiresAt);
+        afterCommit(() -> addUser(userId, generation, expiresAt));
+    }
+
+    // Один конкретный access токен: запись в revoked_access_tokens и событие - в одной транзакции
+    @Transactional
+    public void revokeToken(UUID userId, String tokenId, Instant expiresAt) {
+        revokedAccessTokenRepository.save(new RevokedAccessToken(tokenId, userId,
+                LocalDateTime.ofInstant(expiresAt, ZoneId.systemDefault())));
+        kafkaProducerService.sendAccessTokensRevokedEvent(userId, tokenId, 0, expiresAt);
+        afterCommit(() -> addToken(tokenId, expiresAt));
+    }
+
+    // Отзыв, пришедший от другого (или этого же) инстанса
+    public void apply(AccessTokensRevokedEvent event) {
+        if (event.getTokenId() != null) {
+            addToken(event.getTokenId(), event.getExpiresAt());
+        } else {
+            addUser(event.getUserId(), event.getGeneration(), event.getExpiresAt());
+        }
+    }
+
+    // Удаляем истекшие записи и собираем фильтр заново, чтобы он не забивался
+    @Scheduled(fixedDelayString = "${app.revocation.rebuild-interval-ms}")
+    public void rebuild() {
+        Instant now = Instant.now();
+        writeLock.lock();
+        try {
+            userRevocations.values().removeIf(revocation -> revocation.expiresAt().isBefore(now));
+            revokedTokenIds.values().removeIf(expiresAt -> expiresAt.isBefore(now));
+
+            BloomFilter rebuilt = new BloomFilter(Math.max(expectedEntries, 2L * size()), falsePositiveRate);
+            userRevocations.keySet().forEach(userId -> rebuilt.put(userKey(userId)));
+            revokedTokenIds.keySet().forEach(tokenId -> rebuilt.put(tokenKey(tokenId)));
+            filter = rebuilt;
+        } finally {
+            writeLock.unlock();
+        }
+        revokedAccessTokenRepository.deleteExpired(LocalDateTime.ofInstant(now, ZoneId.systemDefault()));
+    }
+
+    private void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    private void addUser(UUID userId, long generation, Instant expiresAt) {
+        if (expiresAt.isBefore(Instant.now())) {
+            return;
+        }
+        writeLock.lock();
+        try {
+            userRevocations.merge(userId, new UserRevocation(generation, expiresAt), (existing, added) ->
+                    new UserRevocation(Math.max(existing.minGeneration(), added.minGeneration()),
+                            existing.expiresAt().isAfter(added.expiresAt()) ? existing.expiresAt() : added.expiresAt()));
+            // В фильтр - после точного множества, чтобы положительный ответ фильтра всегда подтверждался
+            filter.put(userKey(userId));
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private void addToken(String tokenId, Instant expiresAt) {
+        if (expiresAt.isBefore(Instant.now())) {
+            return;
+        }
+        writeLock.lock();
+        try {
+            revokedTokenIds.put(tokenId, expiresAt);
+            filter.put(tokenKey(tokenId));
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private int size() {
+        return userRevocations.size() + revokedTokenIds.size();
+    }
+
+    private static String userKey(UUID userId) {
+        return "u:" + userId;
+    }
+
+    private static String tokenKey(String tokenId) {
+        return "j:" + tokenId;
+    }
+}
@@ -0,0 +1,275 @@
+package com.abarigena.authenticationservice.security;
+
+import com.abarigena.authenticationservice.entity.JwtSigningKey;
+import com.abarigena.authenticationservice.repository.JwtSigningKeyRepository;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.SignatureAlgorithm;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.SecureRandom;
+import java.security.interfaces.RSAPublicKey;
+import java.security.spec.PKCS8EncodedKeySpec;
+import java.security.spec.X509EncodedKeySpec;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+// Асимметричные ключи подписи (RS256/EdDSA) с ротацией. Ключи хранятся в БД, чтобы все инстансы
+// подписывали и публиковали в JWKS один и тот же набор. В режиме HS512 не используется.
+// Закрытые ключи в БД зашифрованы AES-GCM ключом из jwt.signing.key-encryption-key (KEK), kid - AAD:
+// дамп таблицы без KEK бесполезен, а зашифрованный ключ нельзя переставить в чужую строку.
+@Component
+@Slf4j
+public class JwtKeyManager {
+
+    public static final String HS512 = "HS512";
+    public static final String RS256 = "RS256";
+    public static final String EDDSA = "EdDSA";
+
+    private static final String ENCRYPTED_PREFIX = "v1:";
+    private static final int GCM_IV_BYTES = 12;
+    private static final int GCM_TAG_BITS = 128;
+
+    private final JwtSigningKeyRepository signingKeyRepository;
+    private final String algorithm;
+    private final Duration rotationInterval;
+    private final Duration refreshInterval;
+    private final Duration retention;
+    private final SecretKey keyEncryptionKey;
+    private final SecureRandom secureRandom = new SecureRandom();
+
+    private volatile SigningKey currentSigningKey;
+    private volatile Map<String, PublicKey> verificationKeys = Map.of();
+
+    public record SigningKey(String kid, PrivateKey privateKey, SignatureAlgorithm algorithm) {
+    }
+
+    public JwtKeyManager(JwtSigningKeyRepository signingKeyRepository,
+                         @Value("${jwt.signing.algorithm}") String algorithm,
+                         @Value("${jwt.signing.rotation-interval-ms}") long rotationIntervalMs,
+                         @Value("${jwt.signing.refresh-interval-ms}") long refreshIntervalMs,
+                         @Value("${jwt.refresh-token-expiration-ms}") long refreshTokenExpirationMs,
+                         @Value("${jwt.signing.key-encryption-key:}") String keyEncryptionKey) {
+        if (!List.of(HS512, RS256, EDDSA).contains(algorithm)) {
+            throw new IllegalStateException("Unsupported jwt.signing.algorithm: " + algorithm);
+        }
+        if (!HS512.equals(algorithm) && keyEncryptionKey.isBlank()) {
+            throw new IllegalStateException("jwt.signing.key-encryption-key is required for " + algorithm);
+        }
+        this.keyEncryptionKey = keyEncryptionKey.isBlank() ? null : decodeKeyEncryptionKey(keyEncryptionKey);
+        this.signingKeyRepository = signingKeyRepository;
+        this.algorithm = algorithm;
+        this.rotationInterval = Duration.ofMillis(rotationIntervalMs);
+        this.refreshInterval = Duration.ofMillis(refreshIntervalMs);
+        // Ключ нужен для проверки, пока живы подписанные им токены (самые долгие - refresh)
+        this.retention = rotationInterval.plus(refreshInterval).plusMillis(refreshTokenExpirationMs);
+    }
+
+    public boolean isAsymmetric() {
+        return !HS512.equals(algorithm);
+    }
+
+    @PostConstruct
+    public void init() {
+        if (isAsymmetric()) {
+            rotateIfNeeded();
+        }
+    }
+
+    // Подхватываем ключи, созданные другими инстансами, и ротируем устаревший
+    @Scheduled(fixedDelayString = "${jwt.signing.refresh-interval-ms}", initialDelayString = "${jwt.signing.refresh-interval-ms}")
+    public void refreshKeys() {
+        if (!isAsymmetric()) {
+            return;
+        }
+        try {
+            rotateIfNeeded();
+        } catch (Exception e) {
+            log.error("Failed to refresh JWT signing keys: {}", e.getMessage(), e);
+        }
+    }
+
+    public SigningKey currentSigningKey() {
+        return currentSigningKey;
+    }
+
+    public PublicKey findVerificationKey(String kid) {
+        return verificationKeys.get(kid);
+    }
+
+    // Публичные ключи в формате JWK (RFC 7517) для /.well-known/jwks.json
+    public List<Map<String, Object>> publicJwks() {
+        List<Map<String, Object>> jwks = new ArrayList<>();
+        Base64.Encoder encoder = Base64.getUrlEncoder().withoutPadding();
+        verificationKeys.forEach((kid, publicKey) -> {
+            Map<String, Object> jwk = new LinkedHashMap<>();
+            jwk.put("kid", kid);
+            jwk.put("use", "sig");
+            jwk.put("alg", algorithm);
+            if (publicKey instanceof RSAPublicKey rsaKey) {
+                jwk.put("kty", "RSA");
+                jwk.put("n", encoder.encodeToString(unsigned(rsaKey.getModulus())));
+                jwk.put("e", encoder.encodeToString(unsigned(rsaKey.getPublicExponent())));
+            } else {
+                // X.509 кодировка Ed25519: 12 байт заголовка + 32 байта ключа
+                byte[] encoded = publicKey.getEncoded();
+                jwk.put("kty", "OKP");
+                jwk.put("crv", "Ed25519");
+                jwk.put("x", encoder.encodeToString(Arrays.copyOfRange(encoded, encoded.length - 32, encoded.length)));
+            }
+            jwks.add(jwk);
+        });
+        return jwks;
+    }
+
+    private void rotateIfNeeded() {
+        LocalDateTime now = LocalDateTime.now();
+        List<JwtSigningKey> keys = new ArrayList<>(signingKeyRepository
+                .findByAlgorithmAndCreatedAtAfterOrderByCreatedAtDesc(algorithm, now.minus(retention)));
+
+        if (keys.isEmpty() || keys.get(0).getCreatedAt().isBefore(now.minus(rotationInterval))) {
+            JwtSigningKey generated = generateKey();
+            signingKeyRepository.save(generated);
+            keys.add(0, generated);
+            log.info("Generated new JWT signing key {} ({})", generated.getKid(), algorithm);
+        }
+
+        Map<String, PublicKey> publicKeys = new LinkedHashMap<>();
+        for (JwtSigningKey signingKey : keys) {
+            encryptIfPlaintext(signingKey);
+            publicKeys.put(signingKey.getKid(), decodePublicKey(signingKey.getPublicKey()));
+        }
+        this.verificationKeys = Collections.unmodifiableMap(publicKeys);
+
+        // Новым ключом начинаем подписывать, только когда его уже видят все инстансы (и их JWKS)
+        JwtSigningKey active = keys.stream()
+                .filter(k -> !k.getCreatedAt().isAfter(now.minus(refreshInterval)))
+                .findFirst()
+                .orElse(keys.get(0));
+        if (currentSigningKey == null || !currentSigningKey.kid().equals(active.getKid())) {
+            this.currentSigningKey = new SigningKey(active.getKid(), decodePrivateKey(decryptPrivateKey(active)),
+                    RS256.equals(algorithm) ? Jwts.SIG.RS256 : Jwts.SIG.EdDSA);
+            log.info("Signing JWT tokens with key {}", active.getKid());
+        }
+    }
+
+    private JwtSigningKey generateKey() {
+        try {
+            KeyPairGenerator generator = KeyPairGenerator.getInstance(keyFactoryAlgorithm());
+            if (RS256.equals(algorithm)) {
+                generator.initialize(2048);
+            }
+            KeyPair keyPair = generator.generateKeyPair();
+            String kid = UUID.randomUUID().toString();
+            return new JwtSigningKey(
+                    kid,
+                    algorithm,
+                    Base64.getEncoder().encodeToString(keyPair.getPublic().getEncoded()),
+                    encryptPrivateKey(kid, keyPair.getPrivate().getEncoded())
+            );
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Cannot generate " + algorithm + " key pair", e);
+        }
+    }
+
+    // Ключи, сохраненные до появления KEK, шифруем на месте при первом чтении
+    private void encryptIfPlaintext(JwtSigningKey signingKey) {
+        if (signingKey.getPrivateKey().startsWith(ENCRYPTED_PREFIX)) {
+            return;
+        }
+        byte[] plaintext = Base64.getDecoder().decode(signingKey.getPrivateKey());
+        signingKey.setPrivateKey(encryptPrivateKey(signingKey.getKid(), plaintext));
+        signingKeyRepository.save(signingKey);
+        log.info("Encrypted JWT signing key {} at rest", signingKey.getKid());
+    }
+
+    // Формат: "v1:" + Base64(iv || ciphertext+tag)
+    private String encryptPrivateKey(String kid, byte[] pkcs8) {
+        try {
+            byte[] iv = new byte[GCM_IV_BYTES];
+            secureRandom.nextBytes(iv);
+            Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+            cipher.init(Cipher.ENCRYPT_MODE, keyEncryptionKey, new GCMParameterSpec(GCM_TAG_BITS, iv));
+            cipher.updateAAD(kid.getBytes(StandardCharsets.UTF_8));
+            byte[] ciphertext = cipher.doFinal(pkcs8);
+            return ENCRYPTED_PREFIX + Base64.getEncoder().encodeToString(
+                    ByteBuffer.allocate(iv.length + ciphertext.length).put(iv).put(ciphertext).array());
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Cannot encrypt private key " + kid, e);
+        }
+    }
+
+    // Возвращает PKCS#8 в Base64, как до шифрования
+    private String decryptPrivateKey(JwtSigningKey signingKey) {
+        byte[] payload = Base64.getDecoder().decode(signingKey.getPrivateKey().substring(ENCRYPTED_PREFIX.length()));
+        try {
+            Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+            cipher.init(Cipher.DECRYPT_MODE, keyEncryptionKey, new GCMParameterSpec(GCM_TAG_BITS, payload, 0, GCM_IV_BYTES));
+            cipher.updateAAD(signingKey.getKid().getBytes(StandardCharsets.UTF_8));
+            byte[] pkcs8 = cipher.doFinal(payload, GCM_IV_BYTES, payload.length - GCM_IV_BYTES);
+            return Base64.getEncoder().encodeToString(pkcs8);
+        } catch (GeneralSecurityException e) {
+            // Неверный KEK или подмененная строка
+            throw new IllegalStateException("Cannot decrypt private key " + signingKey.getKid(), e);
+        }
+    }
+
+    private static SecretKey decodeKeyEncryptionKey(String encoded) {
+        byte[] key = Base64.getDecoder().decode(encoded);
+        if (key.length != 16 && key.length != 24 && key.length != 32) {
+            throw new IllegalStateException("jwt.signing.key-encryption-key must be a Base64 AES key of 128, 192 or 256 bits");
+        }
+        return new SecretKeySpec(key, "AES");
+    }
+
+    private PublicKey decodePublicKey(String encoded) {
+        try {
+            return KeyFactory.getInstance(keyFactoryAlgorithm())
+                    .generatePublic(new X509EncodedKeySpec(Base64.getDecoder().decode(encoded)));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Cannot decode public key", e);
+        }
+    }
+
+    private PrivateKey decodePrivateKey(String encoded) {
+        try {
+            return KeyFactory.getInstance(keyFactoryAlgorithm())
+                    .generatePrivate(new PKCS8EncodedKeySpec(Base64.getDecoder().decode(encoded)));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Cannot decode private key", e);
+        }
+    }
+
+    private String keyFactoryAlgorithm() {
+        return RS256.equals(algorithm) ? "RSA" : "Ed25519";
+    }
+
+    private static byte[] unsigned(BigInteger value) {
+        byte[] bytes = value.toByteArray();
+        return bytes[0] == 0 && bytes.length > 1 ? Arrays.copyOfRange(bytes, 1, bytes.length) : bytes;
+    }
+}
@@ -2,9 +2,9 @@ package com.abarigena.authenticationservice.security;
 
 import com.abarigena.authenticationservice.dto.UserInfo;
 import com.abarigena.authenticationservice.entity.AuthUser;
+import com.abarigena.authenticationservice.exception.InvalidTokenException;
+import com.abarigena.security.TokenType;
 import io.jsonwebtoken.*;
-import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import io.jsonwebtoken.security.Keys;
 import io.jsonwebtoken.security.SignatureException;
 import jakarta.annotation.PostConstruct;
@@ -12,20 +12,21 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.Authentication;
-import org.springframework.security.core.GrantedAuthority;
 import org.springframework.stereotype.Component;
 
 import javax.crypto.SecretKey;
+import java.security.Key;
+import java.security.PublicKey;
 import java.util.Date;
-import java.util.Set;
 import java.util.UUID;
-import java.util.stream.Collectors;
 
 @Component
 @Slf4j
 @RequiredArgsConstructor
 public class JwtTokenProvider {
 
+    private static final String GENERATION_CLAIM = "gen";
+
     @Value("${jwt.secret}")
     private String jwtSecret;
 
@@ -35,34 +36,44 @@ public class JwtTokenProvider {
     @Value("${jwt.refresh-token-expiration-ms}")
     private long refreshTokenExpirationMs;
 
+    @Value("${jwt.signing.accept-legacy-hmac}")
+    private boolean acceptLegacyHmac;
+
+    @Value("${jwt.claims.compact-roles}")
+    private boolean compactRoles;
+
+    @Value("${jwt.claims.include-email}")
+    private boolean includeEmail;
+
     private SecretKey key;
-    private final ObjectMapper objectMapper;
+    private JwtParser jwtParser; // Парсер потокобезопасен, собираем один раз
+    private final VerifiedTokenCache verifiedTokenCache;
+    private final JwtKeyManager jwtKeyManager;
 
     @PostConstruct
     public void init() {
         this.key = Keys.hmacShaKeyFor(jwtSecret.getBytes());
+        this.jwtParser = Jwts.parser()
+                .keyLocator(this::locateVerificationKey)
+                .build();
     }
 
-    public String generateAccessToken(Authentication authentication) {
+    public String generateAccessToken(Authentication authentication, long generation) {
         AuthUser userPrincipal = (AuthUser) authentication.getPrincipal();
-        return generateAccessToken(userPrincipal);
+        return generateAccessToken(userPrincipal, generation);
     }
 
-    public String generateAccessToken(AuthUser userPrincipal) {
+    // generation - текущее поколение сессий пользователя, его увеличение отзывает токен досрочно
+    public String generateAccessToken(AuthUser userPrincipal, long generation) {
         Date now = new Date();
         Date expiryDate = new Date(now.getTime() + accessTokenExpirationMs);
-        Set<String> roles = userPrincipal.getAuthorities().stream()
-                .map(GrantedAuthority::getAuthority)
-                .collect(Collectors.toSet());
 
-        return Jwts.builder()
-                .setSubject(userPrincipal.getUserId().toString())
-                .claim("email", userPrincipal.getEmail())
-                .claim("roles", roles)
+        JwtBuilder builder = Jwts.builder().setId(UUID.randomUUID().toString());
+        return sign(AccessTokenClaims.write(builder, userPrincipal, compactRoles, includeEmail)
+                .claim(GENERATION_CLAIM, generation)
+                .claim(TokenType.CLAIM, TokenType.ACCESS)
                 .setIssuedAt(now)
-                .setExpiration(expiryDate)
-                .signWith(key, SignatureAlgorithm.HS512)
-                .compact();
+                .setExpiration(expiryDate));
     }
 
 
@@ -72,54 +83,132 @@ public class JwtTokenProvider {
     }
 
     public String generateRefreshToken(AuthUser userPrincipal) {
+        return generateRefreshToken(userPrincipal, UUID.randomUUID());
+    }
+
+    public String generateRefreshToken(AuthUser userPrincipal, UUID tokenId) {
         Date now = new Date();
         Date expiryDate = new Date(now.getTime() + refreshTokenExpirationMs);
 
         // Refresh token часто содержит меньше информации, только ID для поиска юзера
-        return Jwts.builder()
+        // jti делает каждый токен уникальным, даже если выданы в одну секунду
+        return sign(Jwts.builder()
+                .setId(tokenId.toString())
                 .setSubject(userPrincipal.getUserId().toString())
+                .claim(TokenType.CLAIM, TokenType.REFRESH)
                 .setIssuedAt(now)
-                .setExpiration(expiryDate)
-                .signWith(key, SignatureAlgorithm.HS512)
+                .setExpiration(expiryDate));
+    }
+
+    // HS512 общим секретом или текущим асимметричным ключом с kid в заголовке
+    private String sign(JwtBuilder builder) {
+        if (!jwtKeyManager.isAsymmetric()) {
+            return builder.signWith(key, SignatureAlgorithm.HS512).compact();
+        }
+        JwtKeyManager.SigningKey signingKey = jwtKeyManager.currentSigningKey();
+        return builder.header().keyId(signingKey.kid()).and()
+                .signWith(signingKey.privateKey(), signingKey.algorithm())
                 .compact();
     }
 
+    private Key locateVerificationKey(Header header) {
+        String kid = header instanceof ProtectedHeader protectedHeader ? protectedHeader.getKeyId() : null;
+        if (kid == null) {
+            // Токены без kid подписаны общим секретом (режим HS512 или выпущены до перехода)
+            if (jwtKeyManager.isAsymmetric() && !acceptLegacyHmac) {
+                throw new SignatureException("HMAC signed tokens are not accepted");
+            }
+            return key;
+        }
+        PublicKey publicKey = jwtKeyManager.findVerificationKey(kid);
+        if (publicKey == null) {
+            throw new SignatureException("Unknown signing key id: " + kid);
+        }
+        return publicKey;
+    }
+
 
     public UUID getUserIdFromJWT(String token) {
-        Claims claims = Jwts.parser()
-                .setSigningKey(key)
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
+        Claims claims = parseClaims(token);
         return UUID.fromString(claims.getSubject());
     }
 
     public UserInfo getUserInfoFromJWT(String token) {
-        Claims claims = Jwts.parser()
-                .setSigningKey(key)
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
+        return toUserInfo(requireAccess(parseClaims(token)));
+    }
 
-        UUID userId = UUID.fromString(claims.getSubject());
-        String email = claims.get("email", String.class);
+    // Проверка подписи и извлечение UserInfo за один разбор токена, результат кэшируется до exp
+    public VerifiedToken verifyAccessToken(String token) {
+        String digest = verifiedTokenCache.digest(token);
+        VerifiedToken cached = verifiedTokenCache.get(digest);
+        if (cached != null) {
+            return cached;
+        }
 
+        Claims claims;
+        try {
+            claims = requireAccess(parseClaims(token));
+        } catch (ExpiredJwtException ex) {
+            throw new InvalidTokenException("Expired JWT token", ex);
+        } catch (JwtException | IllegalArgumentException ex) {
+            throw new InvalidTokenException("Invalid JWT token", ex);
+        }
 
-        Object rolesClaim = claims.get("roles");
-        Set<String> roles = objectMapper.convertValue(rolesClaim, new TypeReference<>() {
-        });
+        // Наши access токены всегда содержат iat и exp: без них токен не выпущен этим сервисом
+        if (claims.getIssuedAt() == null || claims.getExpiration() == null) {
+            throw new InvalidTokenException("Invalid JWT token: missing iat or exp");
+        }
 
-        return UserInfo.builder()
-                .userId(userId)
-                .email(email)
-                .roles(roles)
-                .build();
+        // Токены, выпущенные до появления jti/gen, считаются поколением 0
+        Long generation = claims.get(GENERATION_CLAIM, Long.class);
+        VerifiedToken verified = new VerifiedToken(
+                toUserInfo(claims),
+                claims.getId(),
+                generation != null ? generation : 0L,
+                claims.getIssuedAt().toInstant(),
+                claims.getExpiration().toInstant()
+        );
+        verifiedTokenCache.put(digest, verified);
+        return verified;
     }
 
+    private Claims parseClaims(String token) {
+        return jwtParser.parseClaimsJws(token).getBody();
+    }
 
+    // Токены без "typ" выпущены до его появления и неотличимы от refresh - как access не принимаем
+    private static Claims requireAccess(Claims claims) {
+        if (!TokenType.isAccess(claims.get(TokenType.CLAIM))) {
+            throw new UnsupportedJwtException("Not an access token");
+        }
+        return claims;
+    }
+
+    // Понимает и компактный (маска ролей), и прежний (массив "ROLE_*") формат
+    private UserInfo toUserInfo(Claims claims) {
+        return AccessTokenClaims.read(claims);
+    }
+
+
+    // Access токен: подпись, срок и тип
     public boolean validateToken(String authToken) {
+        return validate(authToken, true);
+    }
+
+    // Refresh токен: access токен вместо него не принимается. Старые refresh токены без "typ"
+    // проходят дальше - их все равно должен найти по хэшу RefreshTokenStore.
+    public boolean validateRefreshToken(String refreshToken) {
+        return validate(refreshToken, false);
+    }
+
+    private boolean validate(String token, boolean access) {
         try {
-            Jwts.parser().setSigningKey(key).build().parseClaimsJws(authToken);
+            Claims claims = parseClaims(token);
+            if (access) {
+                requireAccess(claims);
+            } else if (TokenType.isAccess(claims.get(TokenType.CLAIM))) {
+                throw new UnsupportedJwtException("Access token used as refresh token");
+            }
             return true;
         } catch (SignatureException ex) {
             log.error("Invalid JWT signature");
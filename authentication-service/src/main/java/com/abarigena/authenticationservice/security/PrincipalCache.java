@@ -0,0 +1,137 @@
+package com.abarigena.authenticationservice.security;
+
+import com.abarigena.authenticationservice.entity.AuthUser;
+import com.abarigena.authenticationservice.entity.UserRole;
+import com.abarigena.authenticationservice.entity.UserStatus;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+// Кэш принципалов для login/refresh: снимок (id, email, хэш, статус, роли) вместо запроса пользователя и его ролей.
+// Каждый вызов получает новый AuthUser, снимки неизменяемы. Сбрасывается при смене пароля, статуса или ролей.
+@Component
+public class PrincipalCache {
+
+    private final Cache<String, PrincipalSnapshot> byEmail;
+    // userId -> email для инвалидации по id; содержит все закэшированные снимки
+    private final Map<UUID, String> emailsById = new ConcurrentHashMap<>();
+    // Счетчик инвалидаций; инвалидации редки (пароль, статус, роли), поэтому хватает одного на все id
+    private final AtomicLong invalidations = new AtomicLong();
+    private final Timer cacheLoads;
+    private final Timer databaseLoads;
+
+    private record PrincipalSnapshot(UUID userId, String email, String passwordHash, UserStatus status,
+                                     Set<UserRole> roles, LocalDateTime createdAt, LocalDateTime updatedAt) {
+
+        static PrincipalSnapshot of(AuthUser user) {
+            Set<UserRole> roles = user.getRoles().isEmpty() ? Set.of() : Set.copyOf(EnumSet.copyOf(user.getRoles()));
+            return new PrincipalSnapshot(user.getUserId(), user.getEmail(), user.getPasswordHash(), user.getStatus(),
+                    roles, user.getCreatedAt(), user.getUpdatedAt());
+        }
+
+        AuthUser toAuthUser() {
+            return AuthUser.builder()
+                    .userId(userId)
+                    .email(email)
+                    .passwordHash(passwordHash)
+                    .status(status)
+                    .roles(roles)
+                    .createdAt(createdAt)
+                    .updatedAt(updatedAt)
+                    .build();
+        }
+    }
+
+    public PrincipalCache(@Value("${app.security.principal-cache.max-size}") long maxSize,
+                          @Value("${app.security.principal-cache.ttl-ms}") long ttlMs,
+                          MeterRegistry meterRegistry) {
+        this.byEmail = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofMillis(ttlMs)) // Страховка на случай потерянного события
+                .evictionListener((String email, PrincipalSnapshot snapshot, RemovalCause cause) -> {
+                    if (snapshot != null) {
+                        emailsById.remove(snapshot.userId(), email);
+                    }
+                })
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, byEmail, "auth.principal");
+        this.cacheLoads = Timer.builder("auth.principal.load").tag("source", "cache").register(meterRegistry);
+        this.databaseLoads = Timer.builder("auth.principal.load").tag("source", "database").register(meterRegistry);
+    }
+
+    // Загрузка из БД могла начаться до коммита изменения, а ее id -> email еще не записан, поэтому invalidate
+    // такую загрузку не найдет. Версия читается до запроса в БД; если за время загрузки была инвалидация,
+    // результат отдается вызывающему, но в кэш не попадает
+    public Optional<AuthUser> getByEmail(String email, Function<String, Optional<AuthUser>> loader) {
+        long start = System.nanoTime();
+        PrincipalSnapshot[] loaded = new PrincipalSnapshot[1];
+        boolean[] fromDatabase = new boolean[1];
+        PrincipalSnapshot snapshot = byEmail.get(email, key -> {
+            fromDatabase[0] = true;
+            long version = invalidations.get();
+            loaded[0] = loader.apply(key).map(PrincipalSnapshot::of).orElse(null);
+            return loaded[0] != null ? cacheable(loaded[0], key, version) : null;
+        });
+        (fromDatabase[0] ? databaseLoads : cacheLoads).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        return Optional.ofNullable(snapshot != null ? snapshot : loaded[0]).map(PrincipalSnapshot::toAuthUser);
+    }
+
+    // email нужен как ключ: при первом обращении по id пользователь загружается один раз,
+    // и этим же результатом заполняется запись по email
+    public Optional<AuthUser> getById(UUID userId, Function<UUID, Optional<AuthUser>> loader) {
+        String email = emailsById.get(userId);
+        if (email != null) {
+            return getByEmail(email, key -> loader.apply(userId));
+        }
+
+        long start = System.nanoTime();
+        long version = invalidations.get();
+        Optional<AuthUser> user = loader.apply(userId);
+        if (user.isEmpty()) {
+            databaseLoads.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            return user;
+        }
+        // Если снимок уже закэширован по email (вход по email), остается он
+        PrincipalSnapshot loaded = PrincipalSnapshot.of(user.get());
+        PrincipalSnapshot snapshot = byEmail.get(loaded.email(), key -> cacheable(loaded, key, version));
+        databaseLoads.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        return Optional.of(snapshot != null ? snapshot : loaded).map(PrincipalSnapshot::toAuthUser);
+    }
+
+    // id -> email пишется до проверки версии: инвалидация после проверки уже найдет email
+    // и дождется окончания загрузки в byEmail, прежде чем удалить запись
+    private PrincipalSnapshot cacheable(PrincipalSnapshot snapshot, String email, long version) {
+        emailsById.put(snapshot.userId(), email);
+        if (invalidations.get() != version) {
+            emailsById.remove(snapshot.userId(), email);
+            return null;
+        }
+        return snapshot;
+    }
+
+    public void invalidate(UUID userId) {
+        invalidations.incrementAndGet();
+        String email = emailsById.remove(userId);
+        if (email != null) {
+            byEmail.invalidate(email);
+        }
+    }
+}
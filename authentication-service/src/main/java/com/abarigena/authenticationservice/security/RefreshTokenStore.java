@@ -0,0 +1,125 @@
+package com.abarigena.authenticationservice.security;
+
+import com.abarigena.authenticationservice.entity.AuthUser;
+import com.abarigena.authenticationservice.exception.InvalidTokenException;
+import com.abarigena.util.UuidV7;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+// Хранилище refresh токенов. Источник истины - Postgres: все инстансы видят одно состояние,
+// ротация - один условный UPDATE, поэтому один и тот же токен погасить дважды нельзя ни на одном инстансе.
+// В памяти ничего не держим: устаревшее состояние здесь означало бы пропуск повторного использования.
+// "Выйти на всех устройствах" - инкремент поколения пользователя, O(1) независимо от числа токенов.
+@Component
+@Slf4j
+public class RefreshTokenStore {
+
+    private static final String INSERT_TOKEN_SQL = """
+            INSERT INTO refresh_tokens (id, user_id, token_hash, generation, created_at, expires_at, revoked_at, rotated)
+            VALUES (?, ?, ?, ?, ?, ?, NULL, false)
+            """;
+
+    // Гасит токен, только если он еще действующий: не отозван, не истек и не старше текущего поколения
+    private static final String ROTATE_TOKEN_SQL = """
+            UPDATE refresh_tokens t SET revoked_at = now(), rotated = true
+            WHERE t.token_hash = ? AND t.user_id = ? AND t.revoked_at IS NULL AND t.expires_at > now()
+              AND t.generation >= COALESCE((SELECT g.generation FROM user_token_generations g
+                                            WHERE g.user_id = t.user_id), 0)
+            """;
+
+    private static final String REVOKE_TOKEN_SQL = """
+            UPDATE refresh_tokens SET revoked_at = now() WHERE token_hash = ? AND revoked_at IS NULL
+            """;
+
+    private static final String INCREMENT_GENERATION_SQL = """
+            INSERT INTO user_token_generations (user_id, generation, updated_at)
+            VALUES (?, 1, now())
+            ON CONFLICT (user_id) DO UPDATE SET
+                generation = user_token_generations.generation + 1,
+                updated_at = now()
+            RETURNING generation
+            """;
+
+    private final JwtTokenProvider jwtTokenProvider;
+    private final AccessTokenDenylist accessTokenDenylist;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final long refreshTokenExpirationMs;
+
+    public RefreshTokenStore(JwtTokenProvider jwtTokenProvider,
+                             AccessTokenDenylist accessTokenDenylist,
+                             JdbcTemplate jdbcTemplate,
+                             TransactionTemplate transactionTemplate,
+                             @Value("${jwt.refresh-token-expiration-ms}") long refreshTokenExpirationMs) {
+        this.jwtTokenProvider = jwtTokenProvider;
+        this.accessTokenDenylist = accessTokenDenylist;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.refreshTokenExpirationMs = refreshTokenExpirationMs;
+    }
+
+    // Выдает новый refresh токен; в БД хранится только SHA-256 от него
+    public String issue(AuthUser user) {
+        UUID tokenId = UuidV7.randomUUID(); // jti и первичный ключ refresh_tokens
+        String token = jwtTokenProvider.generateRefreshToken(user, tokenId);
+        LocalDateTime now = LocalDateTime.now();
+        jdbcTemplate.update(INSERT_TOKEN_SQL, ps -> {
+            ps.setObject(1, tokenId);
+            ps.setObject(2, user.getUserId());
+            ps.setString(3, TokenDigests.sha256Hex(token));
+            ps.setLong(4, currentGeneration(user.getUserId()));
+            ps.setObject(5, now, Types.TIMESTAMP);
+            ps.setObject(6, now.plusNanos(refreshTokenExpirationMs * 1_000_000), Types.TIMESTAMP);
+        });
+        return token;
+    }
+
+    // Погашает предъявленный токен при ротации. Повторное предъявление уже ротированного токена
+    // означает, что его кто-то украл, - отзываем все сессии пользователя.
+    public void rotate(String token, UUID userId) {
+        String tokenHash = TokenDigests.sha256Hex(token);
+        if (jdbcTemplate.update(ROTATE_TOKEN_SQL, tokenHash, userId) == 1) {
+            return;
+        }
+        // Не погасили: выясняем причину, только чтобы распознать повторное использование
+        List<Boolean> rotated = jdbcTemplate.queryForList(
+                "SELECT rotated FROM refresh_tokens WHERE token_hash = ? AND user_id = ?",
+                Boolean.class, tokenHash, userId);
+        if (!rotated.isEmpty() && Boolean.TRUE.equals(rotated.get(0))) {
+            log.warn("Refresh token reuse detected for user {}, revoking all sessions", userId);
+            revokeAll(userId);
+        }
+        throw new InvalidTokenException("Refresh token not found or revoked");
+    }
+
+    // Logout с одного устройства
+    public void revoke(String token) {
+        jdbcTemplate.update(REVOKE_TOKEN_SQL, TokenDigests.sha256Hex(token));
+    }
+
+    // Logout со всех устройств: все токены со старым поколением становятся недействительными,
+    // включая еще не истекшие access токены. Инкремент атомарен в БД, гонки между инстансами нет.
+    // Инкремент и событие в outbox - одна транзакция; если она уже открыта (сброс пароля), присоединяемся к ней
+    public long revokeAll(UUID userId) {
+        return transactionTemplate.execute(status -> {
+            Long generation = jdbcTemplate.queryForObject(INCREMENT_GENERATION_SQL, Long.class, userId);
+            accessTokenDenylist.revokeUser(userId, generation);
+            return generation;
+        });
+    }
+
+    // Текущее поколение, записывается в access токен (поиск по первичному ключу)
+    public long currentGeneration(UUID userId) {
+        List<Long> generation = jdbcTemplate.queryForList(
+                "SELECT generation FROM user_token_generations WHERE user_id = ?", Long.class, userId);
+        return generation.isEmpty() ? 0L : generation.get(0);
+    }
+}
@@ -0,0 +1,50 @@
+package com.abarigena.authenticationservice.security;
+
+import com.abarigena.authenticationservice.entity.UserRole;
+import com.abarigena.security.RoleMask;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+// Неизменяемые наборы GrantedAuthority для каждой комбинации ролей: getAuthorities() не создает
+// новых объектов на каждый вызов, а роли кодируются в токене той же маской, что и в RoleMask
+public final class RoleAuthorities {
+
+    private static final List<Set<GrantedAuthority>> AUTHORITIES_BY_MASK;
+
+    static {
+        for (UserRole role : UserRole.values()) {
+            if (RoleMask.bit(role.name()) == 0) {
+                throw new IllegalStateException("Role " + role + " is missing in RoleMask.ROLES");
+            }
+        }
+        int combinations = 1 << RoleMask.ROLES.size();
+        List<Set<GrantedAuthority>> authorities = new ArrayList<>(combinations);
+        for (int mask = 0; mask < combinations; mask++) {
+            authorities.add(RoleMask.authorities(mask).stream()
+                    .map(SimpleGrantedAuthority::new)
+                    .collect(Collectors.toUnmodifiableSet()));
+        }
+        AUTHORITIES_BY_MASK = List.copyOf(authorities);
+    }
+
+    private RoleAuthorities() {
+    }
+
+    public static int mask(Collection<UserRole> roles) {
+        int mask = 0;
+        for (UserRole role : roles) {
+            mask |= RoleMask.bit(role.name());
+        }
+        return mask;
+    }
+
+    public static Set<GrantedAuthority> of(Collection<UserRole> roles) {
+        return AUTHORITIES_BY_MASK.get(mask(roles));
+    }
+}
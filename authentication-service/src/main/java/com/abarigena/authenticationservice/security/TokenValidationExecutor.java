@@ -0,0 +1,99 @@
+package com.abarigena.authenticationservice.security;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntConsumer;
+
+// Пакетная проверка токенов на отдельном ограниченном пуле, а не в общем ForkJoinPool,
+// который делят все parallel-стримы процесса. Пакет режется на куски по числу потоков;
+// когда очередь занята, кусок выполняется в вызывающем потоке - лишние пакеты ждут, а не копятся.
+@Component
+public class TokenValidationExecutor implements DisposableBean {
+
+    // Маленькие пакеты дешевле проверить в текущем потоке, чем раздавать по пулу
+    private static final int MIN_CHUNK_SIZE = 16;
+
+    private final ThreadPoolExecutor executor;
+    private final int threads;
+
+    public TokenValidationExecutor(@Value("${app.validation.batch.threads}") int threads,
+                                   @Value("${app.validation.batch.queue-capacity}") int queueCapacity,
+                                   MeterRegistry meterRegistry) {
+        this.threads = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        this.executor = new ThreadPoolExecutor(this.threads, this.threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), new ValidationThreadFactory(),
+                new ThreadPoolExecutor.CallerRunsPolicy());
+
+        Gauge.builder("auth.token.validation.queue.size", executor, e -> e.getQueue().size())
+                .register(meterRegistry);
+        Gauge.builder("auth.token.validation.active", executor, ThreadPoolExecutor::getActiveCount)
+                .register(meterRegistry);
+    }
+
+    // action вызывается ровно один раз для каждого индекса из [0, size); первый кусок - в текущем потоке
+    public void forEachIndex(int size, IntConsumer action) {
+        int chunks = Math.min(threads, (size + MIN_CHUNK_SIZE - 1) / MIN_CHUNK_SIZE);
+        if (chunks <= 1) {
+            runRange(0, size, action);
+            return;
+        }
+        int chunkSize = (size + chunks - 1) / chunks;
+        List<Future<?>> futures = new ArrayList<>(chunks - 1);
+        for (int start = chunkSize; start < size; start += chunkSize) {
+            int from = start;
+            int to = Math.min(size, start + chunkSize);
+            futures.add(executor.submit(() -> runRange(from, to, action)));
+        }
+        runRange(0, chunkSize, action);
+
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for token validation", e);
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof RuntimeException runtimeException) {
+                    throw runtimeException;
+                }
+                throw new IllegalStateException("Token validation failed", e.getCause());
+            }
+        }
+    }
+
+    private static void runRange(int from, int to, IntConsumer action) {
+        for (int i = from; i < to; i++) {
+            action.accept(i);
+        }
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdown();
+    }
+
+    private static class ValidationThreadFactory implements ThreadFactory {
+
+        private final AtomicInteger counter = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "token-validation-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -3,25 +3,57 @@ package com.abarigena.authenticationservice.security;
 import com.abarigena.authenticationservice.entity.AuthUser;
 import com.abarigena.authenticationservice.repository.AuthUserRepository;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Optional;
+import java.util.UUID;
+
 @Service
 @RequiredArgsConstructor
-public class UserDetailsServiceImpl implements UserDetailsService {
+@Slf4j
+public class UserDetailsServiceImpl implements UserDetailsService, UserDetailsPasswordService {
 
     private final AuthUserRepository userRepository;
+    private final PrincipalCache principalCache;
 
+    // Без транзакции: при попадании в кэш соединение из пула не нужно,
+    // при промахе пользователь с ролями читается одним запросом (@EntityGraph)
     @Override
-    @Transactional(readOnly = true) // Важно для загрузки LAZY коллекций, если они есть
     public UserDetails loadUserByUsername(String email) throws UsernameNotFoundException {
-        AuthUser user = userRepository.findByEmail(email)
+        AuthUser user = principalCache.getByEmail(email, userRepository::findByEmail)
                 .orElseThrow(() -> new UsernameNotFoundException("User Not Found with email: " + email));
 
         // AuthUser уже реализует UserDetails
         return user;
     }
+
+    public Optional<AuthUser> loadUserById(UUID userId) {
+        return principalCache.getById(userId, userRepository::findById);
+    }
+
+    // Вызывается после изменения пароля, статуса или ролей пользователя
+    public void evictUser(UUID userId) {
+        principalCache.invalidate(userId);
+    }
+
+    // Вызывается DaoAuthenticationProvider после успешного логина, если хэш устарел.
+    // Логин идет в read-only транзакции, поэтому обновление - в отдельной.
+    @Override
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public UserDetails updatePassword(UserDetails user, String newPassword) {
+        AuthUser authUser = userRepository.findByEmail(user.getUsername())
+                .orElseThrow(() -> new UsernameNotFoundException("User Not Found with email: " + user.getUsername()));
+        authUser.setPasswordHash(newPassword);
+        AuthUser saved = userRepository.save(authUser);
+        principalCache.invalidate(saved.getUserId());
+        log.info("Password hash upgraded for user: {}", saved.getEmail());
+        return saved;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,13 @@
+package com.abarigena.authenticationservice.security;
+
+import com.abarigena.authenticationservice.dto.UserInfo;
+
+import java.time.Instant;
+
+// Результат успешной проверки access токена: данные пользователя, jti, поколение сессий и время жизни токена
+public record VerifiedToken(UserInfo userInfo, String tokenId, long generation, Instant issuedAt, Instant expiresAt) {
+
+    public boolean isExpired(Instant now) {
+        return !expiresAt.isAfter(now);
+    }
+}
@@ -0,0 +1,67 @@
+package com.abarigena.authenticationservice.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+
+// Кэш уже проверенных access токенов. Ключ - SHA-256 от токена, запись живет до exp токена,
+// поэтому повторная валидация стоит одного хэша и одного lookup'а вместо проверки подписи.
+@Component
+public class VerifiedTokenCache {
+
+    private final Cache<String, VerifiedToken> cache;
+
+    public VerifiedTokenCache(@Value("${jwt.validation-cache.max-size}") long maxSize,
+                              MeterRegistry meterRegistry) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfter(new UntilTokenExpiry())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "jwt.validation");
+    }
+
+    public VerifiedToken get(String digest) {
+        VerifiedToken verified = cache.getIfPresent(digest);
+        // Caffeine удаляет записи с небольшой задержкой, exp проверяем явно
+        if (verified != null && verified.isExpired(Instant.now())) {
+            cache.invalidate(digest);
+            return null;
+        }
+        return verified;
+    }
+
+    public void put(String digest, VerifiedToken verified) {
+        cache.put(digest, verified);
+    }
+
+    public String digest(String token) {
+        return TokenDigests.sha256Hex(token);
+    }
+
+    private static class UntilTokenExpiry implements Expiry<String, VerifiedToken> {
+
+        @Override
+        public long expireAfterCreate(String key, VerifiedToken value, long currentTime) {
+            long nanos = Duration.between(Instant.now(), value.expiresAt()).toNanos();
+            return Math.max(nanos, 0);
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, VerifiedToken value, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, value, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String key, VerifiedToken value, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
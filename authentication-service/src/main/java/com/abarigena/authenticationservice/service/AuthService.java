@@ -3,6 +3,8 @@ package com.abarigena.authenticationservice.service;
 import com.abarigena.authenticationservice.dto.*;
 import org.springframework.stereotype.Service;
 
+import java.util.List;
+
 
 public interface AuthService {
     void register(RegisterDto registerDto);
@@ -12,5 +14,6 @@ public interface AuthService {
     void forgotPassword(ForgotPasswordDto forgotPasswordDto);
     void resetPassword(ResetPasswordDto resetPasswordDto);
     UserInfo validateToken(ValidateTokenDto validateTokenDto);
+    List<TokenValidationResult> validateTokens(BatchValidateTokenDto batchValidateTokenDto);
     void logout(LogoutDto logoutDto);
 }
@@ -13,10 +13,18 @@ import com.abarigena.authenticationservice.kafka.KafkaProducerService;
 import com.abarigena.authenticationservice.repository.AuthUserRepository;
 import com.abarigena.authenticationservice.repository.EmailConfirmationTokenRepository;
 import com.abarigena.authenticationservice.repository.PasswordResetTokenRepository;
+import com.abarigena.authenticationservice.security.AccessTokenDenylist;
 import com.abarigena.authenticationservice.security.JwtTokenProvider;
+import com.abarigena.authenticationservice.security.RefreshTokenStore;
+import com.abarigena.authenticationservice.security.TokenValidationExecutor;
+import com.abarigena.authenticationservice.security.UserDetailsServiceImpl;
+import com.abarigena.authenticationservice.security.VerifiedToken;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
@@ -24,15 +32,21 @@ import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
 import java.util.UUID;
 
+// Транзакции объявлены на уровне методов: в register/resetPassword/confirmEmail хэширование
+// выполняется до транзакции, чтобы не держать соединение из пула. События пишутся в outbox
+// в той же транзакции, в Kafka их доставляет OutboxRelay
 @Service
 @RequiredArgsConstructor
 @Slf4j
-@Transactional // Весь сервис транзакционный по умолчанию
 public class AuthServiceImpl implements AuthService {
 
     private final AuthUserRepository authUserRepository;
@@ -41,57 +55,84 @@ public class AuthServiceImpl implements AuthService {
     private final PasswordEncoder passwordEncoder;
     private final AuthenticationManager authenticationManager;
     private final JwtTokenProvider jwtTokenProvider;
+    private final RefreshTokenStore refreshTokenStore;
+    private final AccessTokenDenylist accessTokenDenylist;
+    private final TokenValidationExecutor tokenValidationExecutor;
+    private final UserDetailsServiceImpl userDetailsService;
+    private final RegisteredEmailFilter registeredEmailFilter;
     private final KafkaProducerService kafkaProducerService;
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
 
     @Value("${jwt.email-confirm-token-expiration-ms}")
     private long emailConfirmTokenExpirationMs;
     @Value("${jwt.password-reset-token-expiration-ms}")
     private long passwordResetTokenExpirationMs;
+    @Value("${app.validation.batch.max-size}")
+    private int maxValidationBatchSize;
 
     // 1. Регистрация
     @Override
     public void register(RegisterDto registerDto) {
-        if (authUserRepository.existsByEmail(registerDto.getEmail())) {
+        // Для заведомо новых адресов запрос не делаем: дубликат все равно отсечет unique constraint
+        if (registeredEmailFilter.mightBeRegistered(registerDto.getEmail())
+                && authUserRepository.existsByEmail(registerDto.getEmail())) {
             throw new ConflictException("Error: Email is already in use!");
         }
 
-        AuthUser user = new AuthUser();
-        user.setEmail(registerDto.getEmail());
-        user.setPasswordHash(passwordEncoder.encode(registerDto.getPassword()));
-        // userId генерируется автоматически JPA/Hibernate
-        user.setStatus(UserStatus.PENDING_EMAIL_VERIFICATION);
-        // Роли устанавливаются по умолчанию в entity
-
-        AuthUser savedUser = authUserRepository.save(user);
+        // bcrypt до транзакции
+        String passwordHash = passwordEncoder.encode(registerDto.getPassword());
+        String token = UUID.randomUUID().toString(); // Секрет из ссылки - случайный v4, не упорядоченный v7
+
+        AuthUser savedUser;
+        try {
+            savedUser = inTransaction("register", status -> {
+                AuthUser user = new AuthUser();
+                user.setEmail(registerDto.getEmail());
+                user.setPasswordHash(passwordHash);
+                // userId генерируется автоматически JPA/Hibernate
+                user.setStatus(UserStatus.PENDING_EMAIL_VERIFICATION);
+                // Роли устанавливаются по умолчанию в entity
+
+                AuthUser newUser = authUserRepository.save(user);
+
+                // Генерация и сохранение токена подтверждения email
+                EmailConfirmationToken confirmationToken = new EmailConfirmationToken(
+                        token,
+                        newUser,
+                        LocalDateTime.now().plus(Duration.ofMillis(emailConfirmTokenExpirationMs))
+                );
+                emailConfirmationTokenRepository.save(confirmationToken);
+
+                // Событие в outbox в той же транзакции
+                kafkaProducerService.sendUserRegisteredEvent(
+                        newUser.getUserId(),
+                        newUser.getEmail(),
+                        registerDto.getFirstName(), // Передаем опциональные поля
+                        registerDto.getLastName(),
+                        registerDto.getPhoneNumber()
+                );
+                return newUser;
+            });
+        } catch (DataIntegrityViolationException e) {
+            // Email занят: зарегистрирован параллельно или другим инстансом.
+            // Остальные нарушения ограничений - не конфликт email, их не маскируем
+            if (authUserRepository.existsByEmail(registerDto.getEmail())) {
+                throw new ConflictException("Error: Email is already in use!");
+            }
+            throw e;
+        }
+        registeredEmailFilter.add(savedUser.getEmail());
         log.info("User registered successfully with email: {}", savedUser.getEmail());
-
-        // Генерация и сохранение токена подтверждения email
-        String token = UUID.randomUUID().toString();
-        EmailConfirmationToken confirmationToken = new EmailConfirmationToken(
-                token,
-                savedUser,
-                LocalDateTime.now().plus(Duration.ofMillis(emailConfirmTokenExpirationMs))
-        );
-        emailConfirmationTokenRepository.save(confirmationToken);
         log.info("Email confirmation token generated for user: {}", savedUser.getEmail());
 
         // TODO: Отправка email с ссылкой/токеном подтверждения (через Notification Service или напрямую)
         // String confirmationUrl = "http://yourapp.com/api/auth/confirm-email?token=" + token;
         log.info("Simulating sending confirmation email to {} with token {}", savedUser.getEmail(), token); // Симуляция
-
-        // Отправка события в Kafka
-        kafkaProducerService.sendUserRegisteredEvent(
-                savedUser.getUserId(),
-                savedUser.getEmail(),
-                registerDto.getFirstName(), // Передаем опциональные поля
-                registerDto.getLastName(),
-                registerDto.getPhoneNumber()
-        );
     }
 
     // 2. Подтверждение Email
-    @Transactional
-    @Override// Отдельная транзакция для этого метода
+    @Override
     public void confirmEmail(String token) {
         EmailConfirmationToken confirmationToken = emailConfirmationTokenRepository.findByToken(token)
                 .orElseThrow(() -> new InvalidTokenException("Invalid confirmation token"));
@@ -106,27 +147,33 @@ public class AuthServiceImpl implements AuthService {
             throw new InvalidTokenException("Confirmation token expired");
         }
 
-        // Подтверждаем токен и активируем пользователя
-        confirmationToken.setConfirmedAt(LocalDateTime.now());
-        emailConfirmationTokenRepository.save(confirmationToken); // Обновляем токен
-
-        AuthUser user = confirmationToken.getUser();
-        user.setStatus(UserStatus.ACTIVE);
-        authUserRepository.save(user);
+        UUID userId = confirmationToken.getUser().getUserId();
+        AuthUser user = inTransaction("confirmEmail", status -> {
+            // Подтверждаем токен; условный update защищает от параллельного подтверждения
+            if (emailConfirmationTokenRepository.markConfirmed(confirmationToken.getId(), LocalDateTime.now()) == 0) {
+                throw new BadRequestException("Email already confirmed");
+            }
+
+            AuthUser confirmedUser = authUserRepository.findById(userId)
+                    .orElseThrow(() -> new ResourceNotFoundException("User not found for confirmation token"));
+            confirmedUser.setStatus(UserStatus.ACTIVE);
+            AuthUser saved = authUserRepository.save(confirmedUser);
+            kafkaProducerService.sendUserEmailVerifiedEvent(saved.getUserId());
+            return saved;
+        });
         log.info("Email confirmed successfully for user: {}", user.getEmail());
+        userDetailsService.evictUser(user.getUserId()); // Статус изменился
 
 
-        // Отправка события в Kafka
-        kafkaProducerService.sendUserEmailVerifiedEvent(user.getUserId());
-
         // Можно удалить токен после использования, чтобы избежать повторного использования
         // emailConfirmationTokenRepository.delete(confirmationToken);
     }
 
 
     // 3. Аутентификация (Login)
-    @Transactional(readOnly = true)
-    @Override// Логин не изменяет данные (кроме stateful refresh)
+    // Без общей транзакции: пользователь читается в своей короткой транзакции (UserDetailsServiceImpl),
+    // проверка bcrypt идет уже без удержания соединения
+    @Override
     public TokenDto login(LoginDto loginDto) {
         // AuthenticationManager сам проверит пароль и статус (через UserDetailsServiceImpl.isEnabled)
         Authentication authentication = authenticationManager.authenticate(
@@ -136,8 +183,9 @@ public class AuthServiceImpl implements AuthService {
 
         // Генерируем токены
         AuthUser userPrincipal = (AuthUser) authentication.getPrincipal();
-        String accessToken = jwtTokenProvider.generateAccessToken(userPrincipal);
-        String refreshToken = jwtTokenProvider.generateRefreshToken(userPrincipal);
+        String accessToken = jwtTokenProvider.generateAccessToken(userPrincipal,
+                refreshTokenStore.currentGeneration(userPrincipal.getUserId()));
+        String refreshToken = refreshTokenStore.issue(userPrincipal);
 
         log.info("User logged in successfully: {}", loginDto.getEmail());
 
@@ -149,27 +197,26 @@ public class AuthServiceImpl implements AuthService {
     }
 
     // 4. Обновление Токена (Refresh)
-    @Transactional(readOnly = true)
-    @Override // Read-only, если stateless refresh
+    // Без транзакции: пользователь для возвращающихся сессий берется из кэша принципалов
+    @Override
     public TokenDto refreshToken(RefreshDto refreshDto) {
         String requestRefreshToken = refreshDto.getRefreshToken();
 
-        if (requestRefreshToken == null || !jwtTokenProvider.validateToken(requestRefreshToken)) {
+        if (requestRefreshToken == null || !jwtTokenProvider.validateRefreshToken(requestRefreshToken)) {
             throw new InvalidTokenException("Invalid or expired refresh token");
         }
 
         UUID userId = jwtTokenProvider.getUserIdFromJWT(requestRefreshToken);
 
-        // RefreshToken storedToken = refreshTokenRepository.findByTokenHash(hash(requestRefreshToken))
-        // .orElseThrow(() -> new InvalidTokenException("Refresh token not found or revoked"));
-        // if(storedToken.getExpiresAt().isBefore(LocalDateTime.now())) throw...;
+        // Ротация: предъявленный токен погашается, повторное использование отзывает все сессии
+        refreshTokenStore.rotate(requestRefreshToken, userId);
 
-        AuthUser user = authUserRepository.findById(userId)
+        AuthUser user = userDetailsService.loadUserById(userId)
                 .orElseThrow(() -> new ResourceNotFoundException("User not found for refresh token"));
 
         // Генерируем новую пару токенов
-        String newAccessToken = jwtTokenProvider.generateAccessToken(user);
-        String newRefreshToken = jwtTokenProvider.generateRefreshToken(user);
+        String newAccessToken = jwtTokenProvider.generateAccessToken(user, refreshTokenStore.currentGeneration(userId));
+        String newRefreshToken = refreshTokenStore.issue(user);
 
         log.info("Tokens refreshed for user: {}", user.getEmail());
 
@@ -181,6 +228,7 @@ public class AuthServiceImpl implements AuthService {
     }
 
     // 5. Восстановление пароля - Шаг 1: Запрос на сброс
+    @Transactional
     @Override
     public void forgotPassword(ForgotPasswordDto forgotPasswordDto) {
         AuthUser user = authUserRepository.findByEmail(forgotPasswordDto.getEmail())
@@ -203,7 +251,6 @@ public class AuthServiceImpl implements AuthService {
     }
 
     // 6. Восстановление пароля - Шаг 2: Сброс пароля новым токеном
-    @Transactional
     @Override
     public void resetPassword(ResetPasswordDto resetPasswordDto) {
         PasswordResetToken resetToken = passwordResetTokenRepository.findByToken(resetPasswordDto.getToken())
@@ -218,49 +265,129 @@ public class AuthServiceImpl implements AuthService {
             throw new InvalidTokenException("Password reset token expired");
         }
 
-        // Сбрасываем пароль
-        AuthUser user = resetToken.getUser();
-        user.setPasswordHash(passwordEncoder.encode(resetPasswordDto.getNewPassword()));
-        authUserRepository.save(user);
-
-        // Помечаем токен как использованный (или удаляем)
-        resetToken.setUsedAt(LocalDateTime.now());
-        passwordResetTokenRepository.save(resetToken);
-        // passwordResetTokenRepository.delete(resetToken); // Альтернатива - удаление
+        // bcrypt до транзакции
+        String newPasswordHash = passwordEncoder.encode(resetPasswordDto.getNewPassword());
+        UUID userId = resetToken.getUser().getUserId();
+
+        AuthUser user = inTransaction("resetPassword", status -> {
+            // Помечаем токен как использованный; условный update защищает от повторного использования
+            if (passwordResetTokenRepository.markUsed(resetToken.getId(), LocalDateTime.now()) == 0) {
+                throw new BadRequestException("Password reset token already used");
+            }
+
+            // Сбрасываем пароль
+            AuthUser resetUser = authUserRepository.findById(userId)
+                    .orElseThrow(() -> new ResourceNotFoundException("User not found for password reset token"));
+            resetUser.setPasswordHash(newPasswordHash);
+            AuthUser saved = authUserRepository.save(resetUser);
+            kafkaProducerService.sendUserPasswordChangedEvent(saved.getUserId());
+            // Сессии со старым паролем больше недействительны, включая выданные access токены.
+            // В той же транзакции: новый пароль не закоммитится без отзыва старых сессий
+            refreshTokenStore.revokeAll(userId);
+            return saved;
+        });
 
         log.info("Password reset successfully for user: {}", user.getEmail());
-
-        // Отправка события в Kafka
-        kafkaProducerService.sendUserPasswordChangedEvent(user.getUserId());
+        userDetailsService.evictUser(userId);
     }
 
 
     // 7. Валидация Токена (Внутренний эндпоинт)
-    @Transactional(readOnly = true)
+    // БД не используется, транзакция (и соединение из пула) не нужна
     @Override
     public UserInfo validateToken(ValidateTokenDto validateTokenDto) {
         String token = validateTokenDto.getToken();
-        if (token == null || !jwtTokenProvider.validateToken(token)) {
+        if (token == null) {
             // Не используем ControllerAdvice здесь, т.к. это может быть внутренний вызов
             // Выбрасываем исключение, которое будет обработано стандартно или специально
             throw new InvalidTokenException("Invalid or expired access token");
         }
-        // Валидация прошла, извлекаем информацию
-        return jwtTokenProvider.getUserInfoFromJWT(token);
+        return verifyAccessToken(token);
+    }
+
+    // Пакетная проверка для внутренних сервисов: один HTTP вызов вместо N, токены проверяются параллельно.
+    // Результаты пишутся в заранее выделенный массив по индексу, порядок совпадает с запросом.
+    @Override
+    public List<TokenValidationResult> validateTokens(BatchValidateTokenDto batchValidateTokenDto) {
+        List<String> tokens = batchValidateTokenDto.getTokens();
+        if (tokens.size() > maxValidationBatchSize) {
+            throw new BadRequestException("Too many tokens in batch, max is " + maxValidationBatchSize);
+        }
+
+        TokenValidationResult[] results = new TokenValidationResult[tokens.size()];
+        tokenValidationExecutor.forEachIndex(results.length, i -> results[i] = validateOne(tokens.get(i)));
+        return Arrays.asList(results);
+    }
 
+    private TokenValidationResult validateOne(String token) {
+        if (token == null || token.isBlank()) {
+            return TokenValidationResult.invalid("Token is blank");
+        }
+        try {
+            return TokenValidationResult.valid(verifyAccessToken(token));
+        } catch (InvalidTokenException e) {
+            return TokenValidationResult.invalid(e.getMessage());
+        } catch (RuntimeException e) {
+            // Любая ошибка разбора касается только этого токена, остальной пакет проверяется дальше
+            log.warn("Token validation failed: {}", e.getMessage());
+            return TokenValidationResult.invalid("Invalid token");
+        }
+    }
+
+    private UserInfo verifyAccessToken(String token) {
+        // Подпись проверяется один раз, повторные запросы с тем же токеном берутся из кэша
+        VerifiedToken verified = jwtTokenProvider.verifyAccessToken(token);
+        // Отзыв проверяется на каждом запросе: токен мог попасть в кэш до отзыва
+        if (accessTokenDenylist.isRevoked(verified)) {
+            throw new InvalidTokenException("Access token revoked");
+        }
+        return verified.userInfo();
     }
 
 
-    @Transactional
     @Override
     public void logout(LogoutDto logoutDto) {
+        // Access токен текущей сессии отзываем сразу, не дожидаясь его истечения
+        if (logoutDto.getAccessToken() != null && !logoutDto.getAccessToken().isBlank()) {
+            revokeAccessToken(logoutDto.getAccessToken());
+        }
+
         // Если refresh token не передан (например, просто удалили на клиенте), ничего не делаем
         if(logoutDto.getRefreshToken() == null || logoutDto.getRefreshToken().isBlank()) {
             log.info("Logout request received without refresh token.");
             return;
         }
 
-        log.info("Logout requested. Invalidate refresh token logic needs implementation if stateful.");
+        if (logoutDto.isAllDevices()) {
+            if (!jwtTokenProvider.validateRefreshToken(logoutDto.getRefreshToken())) {
+                throw new InvalidTokenException("Invalid or expired refresh token");
+            }
+            UUID userId = jwtTokenProvider.getUserIdFromJWT(logoutDto.getRefreshToken());
+            refreshTokenStore.revokeAll(userId);
+            log.info("Logout from all devices for user: {}", userId);
+            return;
+        }
+
+        refreshTokenStore.revoke(logoutDto.getRefreshToken());
+        log.info("Refresh token revoked on logout.");
+    }
+
+    private void revokeAccessToken(String accessToken) {
+        try {
+            VerifiedToken verified = jwtTokenProvider.verifyAccessToken(accessToken);
+            if (verified.tokenId() != null) {
+                accessTokenDenylist.revokeToken(verified.userInfo().getUserId(), verified.tokenId(), verified.expiresAt());
+            }
+        } catch (InvalidTokenException e) {
+            log.debug("Access token passed to logout is already invalid: {}", e.getMessage());
+        }
+    }
 
+    // Короткая транзакция с замером времени: длительность транзакции ~ время удержания соединения из пула
+    private <T> T inTransaction(String method, TransactionCallback<T> action) {
+        return Timer.builder("auth.transaction.duration")
+                .tag("method", method)
+                .register(meterRegistry)
+                .record(() -> transactionTemplate.execute(action));
     }
 }
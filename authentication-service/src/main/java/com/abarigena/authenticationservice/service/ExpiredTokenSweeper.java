@@ -0,0 +1,126 @@
+package com.abarigena.authenticationservice.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Удаляет истекшие токены (использованные и нет) пачками по expires_at.
+// Каждая пачка - отдельная короткая транзакция; FOR UPDATE SKIP LOCKED позволяет нескольким
+// инстансам чистить одновременно, не блокируя друг друга и не удаляя одни и те же строки.
+// Прогон длится десятки секунд (паузы между пачками), поэтому у чистильщика свой поток:
+// на общем потоке @Scheduled он задержал бы outbox relay, обновление ключей и denylist.
+@Component
+@Slf4j
+public class ExpiredTokenSweeper {
+
+    private static final List<String> TABLES = List.of("email_confirmation_tokens", "password_reset_tokens", "refresh_tokens");
+
+    private static final String DELETE_BATCH_SQL = """
+            DELETE FROM %1$s WHERE id IN (
+                SELECT id FROM %1$s WHERE expires_at < ? LIMIT ? FOR UPDATE SKIP LOCKED
+            )
+            """;
+
+    // Оценка из статистики планировщика: count(*) по большой таблице слишком дорог для метрики
+    private static final String ESTIMATED_ROWS_SQL = "SELECT reltuples::bigint FROM pg_class WHERE relname = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int batchSize;
+    private final long pauseMs;
+    private final int maxBatches;
+    private final long retentionMs;
+    private final long initialDelayMs;
+    private final long intervalMs;
+    private final ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+
+    private final Map<String, Counter> purged = new ConcurrentHashMap<>();
+    private final Map<String, AtomicLong> estimatedRows = new ConcurrentHashMap<>();
+
+    public ExpiredTokenSweeper(JdbcTemplate jdbcTemplate,
+                               MeterRegistry meterRegistry,
+                               @Value("${app.token-sweeper.batch-size}") int batchSize,
+                               @Value("${app.token-sweeper.pause-ms}") long pauseMs,
+                               @Value("${app.token-sweeper.max-batches}") int maxBatches,
+                               @Value("${app.token-sweeper.retention-ms}") long retentionMs,
+                               @Value("${app.token-sweeper.initial-delay-ms}") long initialDelayMs,
+                               @Value("${app.token-sweeper.interval-ms}") long intervalMs) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.batchSize = batchSize;
+        this.pauseMs = pauseMs;
+        this.maxBatches = maxBatches;
+        this.retentionMs = retentionMs;
+        this.initialDelayMs = initialDelayMs;
+        this.intervalMs = intervalMs;
+        for (String table : TABLES) {
+            purged.put(table, meterRegistry.counter("auth.tokens.purged", "table", table));
+            AtomicLong rows = new AtomicLong();
+            estimatedRows.put(table, rows);
+            Gauge.builder("auth.tokens.table.rows", rows, AtomicLong::get).tag("table", table).register(meterRegistry);
+        }
+    }
+
+    @PostConstruct
+    public void start() {
+        scheduler.setPoolSize(1);
+        scheduler.setThreadNamePrefix("token-sweeper-");
+        scheduler.initialize();
+        scheduler.scheduleWithFixedDelay(this::sweep, Instant.now().plusMillis(initialDelayMs), Duration.ofMillis(intervalMs));
+    }
+
+    // Прерывает паузу между пачками, текущая пачка (одна транзакция) просто не повторится
+    @PreDestroy
+    public void stop() {
+        scheduler.shutdown();
+    }
+
+    public void sweep() {
+        LocalDateTime cutoff = LocalDateTime.now().minusNanos(retentionMs * 1_000_000);
+        for (String table : TABLES) {
+            try {
+                long deleted = sweepTable(table, Timestamp.valueOf(cutoff));
+                if (deleted > 0) {
+                    log.info("Purged {} expired rows from {}", deleted, table);
+                }
+                Long rows = jdbcTemplate.queryForObject(ESTIMATED_ROWS_SQL, Long.class, table);
+                estimatedRows.get(table).set(rows != null ? Math.max(rows, 0) : 0);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                log.error("Failed to purge expired rows from {}: {}", table, e.getMessage(), e);
+            }
+        }
+    }
+
+    private long sweepTable(String table, Timestamp cutoff) throws InterruptedException {
+        String sql = DELETE_BATCH_SQL.formatted(table);
+        long total = 0;
+        for (int batch = 0; batch < maxBatches; batch++) {
+            int deleted = jdbcTemplate.update(sql, cutoff, batchSize);
+            purged.get(table).increment(deleted);
+            total += deleted;
+            if (deleted < batchSize) {
+                break;
+            }
+            // Пауза между пачками, чтобы не нагружать БД и автовакуум
+            Thread.sleep(pauseMs);
+        }
+        return total;
+    }
+}
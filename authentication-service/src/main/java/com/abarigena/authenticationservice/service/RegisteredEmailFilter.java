@@ -0,0 +1,92 @@
+package com.abarigena.authenticationservice.service;
+
+import com.abarigena.authenticationservice.util.BloomFilter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+// Фильтр уже зарегистрированных email перед проверкой existsByEmail. Отрицательный ответ фильтра точный,
+// поэтому для новых адресов запрос пропускается, а уникальность обеспечивает constraint на auth_users.email.
+// Пока фильтр не прогрет (или выключен), все адреса считаются возможно занятыми.
+@Component
+@Slf4j
+public class RegisteredEmailFilter {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final long expectedInsertions;
+    private final double falsePositiveRate;
+    private final Counter skippedChecks;
+    private final Counter queriedChecks;
+
+    private volatile BloomFilter filter;
+    // Фильтр, который сейчас прогревается: регистрации во время прогрева пишутся и в него
+    private volatile BloomFilter warming;
+
+    public RegisteredEmailFilter(JdbcTemplate jdbcTemplate,
+                                 TransactionTemplate transactionTemplate,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${app.registration.email-filter.enabled}") boolean enabled,
+                                 @Value("${app.registration.email-filter.expected-insertions}") long expectedInsertions,
+                                 @Value("${app.registration.email-filter.false-positive-rate}") double falsePositiveRate) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.enabled = enabled;
+        this.expectedInsertions = expectedInsertions;
+        this.falsePositiveRate = falsePositiveRate;
+        this.skippedChecks = meterRegistry.counter("auth.register.email.precheck", "result", "skipped");
+        this.queriedChecks = meterRegistry.counter("auth.register.email.precheck", "result", "queried");
+    }
+
+    // Прогрев после старта, чтобы не задерживать запуск; регистрации в это время идут через existsByEmail
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        if (!enabled) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        Long count = jdbcTemplate.queryForObject("SELECT count(*) FROM auth_users", Long.class);
+        BloomFilter warmed = new BloomFilter(Math.max(expectedInsertions, 2 * (count != null ? count : 0)), falsePositiveRate);
+        warming = warmed;
+        // Postgres отдает строки порциями (fetch size) только внутри транзакции
+        JdbcTemplate streaming = new JdbcTemplate(jdbcTemplate.getDataSource());
+        streaming.setFetchSize(1000);
+        transactionTemplate.executeWithoutResult(status ->
+                streaming.query("SELECT email FROM auth_users", rs -> {
+                    warmed.put(rs.getString(1));
+                }));
+        filter = warmed;
+        warming = null;
+        log.info("Registered email filter warmed with {} emails in {} ms", count, System.currentTimeMillis() - start);
+    }
+
+    // false - адрес точно не зарегистрирован (по данным этого инстанса), проверочный запрос не нужен
+    public boolean mightBeRegistered(String email) {
+        BloomFilter current = filter;
+        if (current == null || current.mightContain(email)) {
+            queriedChecks.increment();
+            return true;
+        }
+        skippedChecks.increment();
+        return false;
+    }
+
+    // Сначала warming, потом filter: адрес, добавленный во время прогрева, попадет в прогретый фильтр
+    public void add(String email) {
+        BloomFilter building = warming;
+        if (building != null) {
+            building.put(email);
+        }
+        BloomFilter current = filter;
+        if (current != null) {
+            current.put(email);
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.abarigena.authenticationservice.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BloomFilterTest {
+
+    private static final int KEYS = 100_000;
+    private static final double FALSE_POSITIVE_RATE = 0.01;
+
+    @Test
+    void hasNoFalseNegatives() {
+        BloomFilter filter = new BloomFilter(KEYS, FALSE_POSITIVE_RATE);
+        for (int i = 0; i < KEYS; i++) {
+            filter.put("u:" + i);
+        }
+        for (int i = 0; i < KEYS; i++) {
+            assertTrue(filter.mightContain("u:" + i), "missing key u:" + i);
+        }
+    }
+
+    @Test
+    void hasNoFalseNegativesUnderConcurrentPuts() throws InterruptedException {
+        BloomFilter filter = new BloomFilter(KEYS, FALSE_POSITIVE_RATE);
+        int threads = 4;
+        List<Thread> writers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int offset = t;
+            writers.add(Thread.ofPlatform().start(() -> {
+                for (int i = offset; i < KEYS; i += threads) {
+                    filter.put("j:" + i);
+                }
+            }));
+        }
+        for (Thread writer : writers) {
+            writer.join();
+        }
+        for (int i = 0; i < KEYS; i++) {
+            assertTrue(filter.mightContain("j:" + i), "missing key j:" + i);
+        }
+    }
+
+    @Test
+    void keepsFalsePositiveRateNearConfigured() {
+        BloomFilter filter = new BloomFilter(KEYS, FALSE_POSITIVE_RATE);
+        for (int i = 0; i < KEYS; i++) {
+            filter.put("present:" + i);
+        }
+        int falsePositives = 0;
+        for (int i = 0; i < KEYS; i++) {
+            if (filter.mightContain("absent:" + i)) {
+                falsePositives++;
+            }
+        }
+        double rate = (double) falsePositives / KEYS;
+        assertTrue(rate < FALSE_POSITIVE_RATE * 2, "false positive rate " + rate);
+    }
+}
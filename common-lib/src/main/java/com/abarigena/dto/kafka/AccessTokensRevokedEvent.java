@@ -0,0 +1,21 @@
+package com.abarigena.dto.kafka;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+import java.util.UUID;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class AccessTokensRevokedEvent {
+    private UUID userId;
+    private String tokenId; // jti отозванного токена; null - отозваны все токены пользователя
+    private long generation; // Токены пользователя с поколением ниже этого недействительны
+    private Instant expiresAt; // После этого момента отозванные токены истекут сами
+    private Instant timestamp;
+}
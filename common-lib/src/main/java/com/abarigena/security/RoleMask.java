@@ -0,0 +1,68 @@
+package com.abarigena.security;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+// Компактное представление ролей в access токене: claim "rm" - битовая маска вместо JSON-массива "ROLE_*".
+// Номер бита = позиция роли в ROLES. Порядок менять нельзя: маски в уже выданных токенах станут неверными,
+// новые роли добавляются только в конец.
+public final class RoleMask {
+
+    public static final String CLAIM = "rm";
+
+    public static final List<String> ROLES = List.of("USER", "DRIVER", "ADMIN");
+
+    private static final String ROLE_PREFIX = "ROLE_";
+
+    // Наборы "ROLE_*" для каждой комбинации ролей, вычислены заранее и неизменяемы
+    private static final List<Set<String>> AUTHORITIES_BY_MASK;
+    private static final List<String> HEADER_VALUE_BY_MASK;
+
+    static {
+        int combinations = 1 << ROLES.size();
+        List<Set<String>> authorities = new ArrayList<>(combinations);
+        List<String> headerValues = new ArrayList<>(combinations);
+        for (int mask = 0; mask < combinations; mask++) {
+            Set<String> names = new LinkedHashSet<>();
+            for (int bit = 0; bit < ROLES.size(); bit++) {
+                if ((mask & (1 << bit)) != 0) {
+                    names.add(ROLE_PREFIX + ROLES.get(bit));
+                }
+            }
+            authorities.add(Set.copyOf(names));
+            headerValues.add(String.join(",", names));
+        }
+        AUTHORITIES_BY_MASK = List.copyOf(authorities);
+        HEADER_VALUE_BY_MASK = List.copyOf(headerValues);
+    }
+
+    private RoleMask() {
+    }
+
+    // Бит роли по имени (USER или ROLE_USER); неизвестные роли не кодируются
+    public static int bit(String role) {
+        String name = role.startsWith(ROLE_PREFIX) ? role.substring(ROLE_PREFIX.length()) : role;
+        int index = ROLES.indexOf(name);
+        return index < 0 ? 0 : 1 << index;
+    }
+
+    public static int encode(Collection<String> roles) {
+        int mask = 0;
+        for (String role : roles) {
+            mask |= bit(role);
+        }
+        return mask;
+    }
+
+    public static Set<String> authorities(int mask) {
+        return AUTHORITIES_BY_MASK.get(mask & (AUTHORITIES_BY_MASK.size() - 1));
+    }
+
+    // Значение заголовка X-User-Roles, например "ROLE_USER,ROLE_DRIVER"
+    public static String headerValue(int mask) {
+        return HEADER_VALUE_BY_MASK.get(mask & (HEADER_VALUE_BY_MASK.size() - 1));
+    }
+}
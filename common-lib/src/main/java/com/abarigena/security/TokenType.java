@@ -0,0 +1,18 @@
+package com.abarigena.security;
+
+// Тип JWT в claim "typ". Access и refresh токены подписаны одним ключом и похожи по составу,
+// поэтому каждый проверяющий обязан смотреть на тип: refresh токен не должен проходить как access.
+public final class TokenType {
+
+    public static final String CLAIM = "typ";
+
+    public static final String ACCESS = "access";
+    public static final String REFRESH = "refresh";
+
+    private TokenType() {
+    }
+
+    public static boolean isAccess(Object typ) {
+        return ACCESS.equals(typ);
+    }
+}
@@ -0,0 +1,35 @@
+package com.abarigena.util;
+
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+// UUID версии 7 (RFC 9562): 48 бит unix-времени в мс, затем 12-битный счетчик и 62 случайных бита.
+// Значения растут со временем, поэтому вставки идут в правый край B-tree индекса, а не в случайные страницы.
+// Внутри одной JVM значения строго возрастают и в пределах одной миллисекунды.
+// Не подходит для секретов (токены подтверждения, сброса пароля) - время и счетчик предсказуемы.
+public final class UuidV7 {
+
+    private static final AtomicLong LAST_TIMESTAMP_AND_SEQUENCE = new AtomicLong();
+
+    private UuidV7() {
+    }
+
+    public static UUID randomUUID() {
+        // Старшие биты - миллисекунды, младшие 12 - счетчик; при переполнении счетчика время "занимается" вперед
+        long now = System.currentTimeMillis() << 12;
+        long timestampAndSequence = LAST_TIMESTAMP_AND_SEQUENCE.updateAndGet(last -> Math.max(now, last + 1));
+
+        long timestamp = timestampAndSequence >>> 12;
+        long sequence = timestampAndSequence & 0xFFFL;
+
+        long mostSigBits = (timestamp << 16) | 0x7000L | sequence;
+        long leastSigBits = (ThreadLocalRandom.current().nextLong() & 0x3FFFFFFFFFFFFFFFL) | 0x8000000000000000L;
+        return new UUID(mostSigBits, leastSigBits);
+    }
+
+    // Момент создания, закодированный в UUIDv7
+    public static long timestampMillis(UUID uuid) {
+        return uuid.getMostSignificantBits() >>> 16;
+    }
+}
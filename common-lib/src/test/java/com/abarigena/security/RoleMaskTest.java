@@ -0,0 +1,35 @@
+package com.abarigena.security;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class RoleMaskTest {
+
+    @Test
+    void everyMaskRoundTripsThroughAuthorities() {
+        for (int mask = 0; mask < 1 << RoleMask.ROLES.size(); mask++) {
+            assertEquals(mask, RoleMask.encode(RoleMask.authorities(mask)));
+            assertEquals(mask, RoleMask.encode(List.of(RoleMask.headerValue(mask).split(","))));
+        }
+    }
+
+    @Test
+    void encodesRolesWithAndWithoutPrefix() {
+        int mask = RoleMask.encode(List.of("USER", "ROLE_ADMIN"));
+
+        assertEquals(0b101, mask);
+        assertEquals(Set.of("ROLE_USER", "ROLE_ADMIN"), RoleMask.authorities(mask));
+        assertEquals("ROLE_USER,ROLE_ADMIN", RoleMask.headerValue(mask));
+    }
+
+    @Test
+    void ignoresUnknownRoles() {
+        assertEquals(RoleMask.bit("DRIVER"), RoleMask.encode(List.of("DRIVER", "ROLE_UNKNOWN")));
+        assertEquals(Set.of(), RoleMask.authorities(0));
+        assertEquals("", RoleMask.headerValue(0));
+    }
+}
@@ -0,0 +1,45 @@
+package com.abarigena.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class UuidV7Test {
+
+    @Test
+    void setsVersionAndVariantBits() {
+        for (int i = 0; i < 10_000; i++) {
+            UUID uuid = UuidV7.randomUUID();
+            assertEquals(7, uuid.version());
+            assertEquals(2, uuid.variant());
+        }
+    }
+
+    @Test
+    void isStrictlyIncreasingWithinJvm() {
+        UUID previous = UuidV7.randomUUID();
+        // Больше, чем влезает в 12-битный счетчик одной миллисекунды
+        for (int i = 0; i < 100_000; i++) {
+            UUID next = UuidV7.randomUUID();
+            UUID last = previous;
+            assertTrue(Long.compareUnsigned(next.getMostSignificantBits(), last.getMostSignificantBits()) > 0,
+                    () -> next + " is not greater than " + last);
+            previous = next;
+        }
+    }
+
+    @Test
+    void encodesCreationTime() {
+        long before = System.currentTimeMillis();
+        UUID uuid = UuidV7.randomUUID();
+        long after = System.currentTimeMillis();
+
+        long timestamp = UuidV7.timestampMillis(uuid);
+        assertTrue(timestamp >= before, "timestamp " + timestamp + " is before " + before);
+        // Счетчик при переполнении занимает время вперед, но не больше чем на доли секунды
+        assertTrue(timestamp <= after + 1000, "timestamp " + timestamp + " is too far after " + after);
+    }
+}
@@ -0,0 +1,48 @@
+package com.abarigena.gatewayservice.kafka;
+
+import com.abarigena.dto.kafka.AccessTokensRevokedEvent;
+import com.abarigena.gatewayservice.security.RevokedTokenRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.annotation.KafkaHandler;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.listener.ConsumerSeekAware;
+import org.springframework.messaging.handler.annotation.Payload;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+
+// Отзывы токенов из auth-events. При назначении партиций перечитываем последнее время жизни access токена:
+// отзывы, сделанные до старта gateway, касаются еще живых токенов
+@Service
+@Slf4j
+@KafkaListener(topics = "${spring.kafka.topic.access-tokens-revoked}",
+        groupId = "${gateway.revocation.consumer-group}")
+public class RevocationEventListener implements ConsumerSeekAware {
+
+    private final RevokedTokenRegistry revokedTokenRegistry;
+    private final long accessTokenExpirationMs;
+
+    public RevocationEventListener(RevokedTokenRegistry revokedTokenRegistry,
+                                   @Value("${jwt.expiration-ms}") long accessTokenExpirationMs) {
+        this.revokedTokenRegistry = revokedTokenRegistry;
+        this.accessTokenExpirationMs = accessTokenExpirationMs;
+    }
+
+    @Override
+    public void onPartitionsAssigned(Map<TopicPartition, Long> assignments, ConsumerSeekCallback callback) {
+        callback.seekToTimestamp(assignments.keySet(), System.currentTimeMillis() - accessTokenExpirationMs);
+    }
+
+    @KafkaHandler
+    public void listenAccessTokensRevoked(@Payload AccessTokensRevokedEvent event) {
+        log.debug("Received AccessTokensRevokedEvent for userId: {}", event.getUserId());
+        revokedTokenRegistry.apply(event);
+    }
+
+    // Остальные события auth-events gateway не нужны
+    @KafkaHandler(isDefault = true)
+    public void ignore(Object event) {
+    }
+}
@@ -0,0 +1,126 @@
+package com.abarigena.gatewayservice.security;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.math.BigInteger;
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.PublicKey;
+import java.security.spec.RSAPublicKeySpec;
+import java.security.spec.X509EncodedKeySpec;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+
+// Кэш публичных ключей authentication-service (JWKS). Обновляется в фоне,
+// поиск ключа по kid при проверке токена не делает сетевых вызовов.
+@Component
+@Slf4j
+public class JwksKeyResolver {
+
+    // DER префикс SubjectPublicKeyInfo для Ed25519, за ним идут 32 байта ключа
+    private static final byte[] ED25519_X509_PREFIX = {0x30, 0x2a, 0x30, 0x05, 0x06, 0x03, 0x2b, 0x65, 0x70, 0x03, 0x21, 0x00};
+    private static final Duration MIN_FORCED_REFRESH_INTERVAL = Duration.ofSeconds(10);
+
+    private final WebClient webClient;
+    private final String jwkSetUri;
+    private final Duration refreshInterval;
+
+    private volatile Map<String, PublicKey> keys = Map.of();
+    private volatile Instant lastForcedRefresh = Instant.EPOCH;
+    private Disposable refreshSubscription;
+
+    public JwksKeyResolver(WebClient.Builder webClientBuilder,
+                           @Value("${gateway.jwt.jwk-set-uri:}") String jwkSetUri,
+                           @Value("${gateway.jwt.jwk-set-refresh-ms:300000}") long refreshIntervalMs) {
+        this.webClient = webClientBuilder.build();
+        this.jwkSetUri = jwkSetUri;
+        this.refreshInterval = Duration.ofMillis(refreshIntervalMs);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (jwkSetUri.isBlank()) {
+            return;
+        }
+        refreshSubscription = Flux.interval(Duration.ZERO, refreshInterval)
+                .onBackpressureDrop()
+                .concatMap(tick -> fetchKeys())
+                .subscribe();
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (refreshSubscription != null) {
+            refreshSubscription.dispose();
+        }
+    }
+
+    public PublicKey find(String kid) {
+        PublicKey key = keys.get(kid);
+        if (key == null && !jwkSetUri.isBlank()) {
+            // Ключ мог появиться после последнего обновления - подтягиваем без ожидания, не чаще раза в 10 секунд
+            Instant now = Instant.now();
+            if (lastForcedRefresh.plus(MIN_FORCED_REFRESH_INTERVAL).isBefore(now)) {
+                lastForcedRefresh = now;
+                fetchKeys().subscribe();
+            }
+        }
+        return key;
+    }
+
+    private Mono<Void> fetchKeys() {
+        return webClient.get()
+                .uri(jwkSetUri)
+                .retrieve()
+                .bodyToMono(JsonNode.class)
+                .doOnNext(this::updateKeys)
+                .onErrorResume(e -> {
+                    log.warn("Failed to fetch JWKS from {}: {}", jwkSetUri, e.getMessage());
+                    return Mono.empty();
+                })
+                .then();
+    }
+
+    private void updateKeys(JsonNode jwkSet) {
+        Map<String, PublicKey> parsed = new HashMap<>();
+        for (JsonNode jwk : jwkSet.path("keys")) {
+            try {
+                parsed.put(jwk.path("kid").asText(), toPublicKey(jwk));
+            } catch (GeneralSecurityException | IllegalArgumentException e) {
+                log.warn("Skipping JWK {}: {}", jwk.path("kid").asText(), e.getMessage());
+            }
+        }
+        this.keys = Map.copyOf(parsed);
+        log.debug("Loaded {} JWT verification keys", parsed.size());
+    }
+
+    private PublicKey toPublicKey(JsonNode jwk) throws GeneralSecurityException {
+        Base64.Decoder decoder = Base64.getUrlDecoder();
+        String kty = jwk.path("kty").asText();
+        if ("RSA".equals(kty)) {
+            BigInteger modulus = new BigInteger(1, decoder.decode(jwk.path("n").asText()));
+            BigInteger exponent = new BigInteger(1, decoder.decode(jwk.path("e").asText()));
+            return KeyFactory.getInstance("RSA").generatePublic(new RSAPublicKeySpec(modulus, exponent));
+        }
+        if ("OKP".equals(kty) && "Ed25519".equals(jwk.path("crv").asText())) {
+            byte[] x = decoder.decode(jwk.path("x").asText());
+            byte[] encoded = new byte[ED25519_X509_PREFIX.length + x.length];
+            System.arraycopy(ED25519_X509_PREFIX, 0, encoded, 0, ED25519_X509_PREFIX.length);
+            System.arraycopy(x, 0, encoded, ED25519_X509_PREFIX.length, x.length);
+            return KeyFactory.getInstance("Ed25519").generatePublic(new X509EncodedKeySpec(encoded));
+        }
+        throw new IllegalArgumentException("Unsupported key type " + kty);
+    }
+}
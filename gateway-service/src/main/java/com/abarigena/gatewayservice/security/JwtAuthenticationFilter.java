@@ -0,0 +1,200 @@
+package com.abarigena.gatewayservice.security;
+
+import com.abarigena.security.RoleMask;
+import com.abarigena.security.TokenType;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Header;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.ProtectedHeader;
+import io.jsonwebtoken.security.Keys;
+import io.jsonwebtoken.security.SignatureException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.core.Ordered;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.util.StringUtils;
+import org.springframework.web.util.UriUtils;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import javax.crypto.SecretKey;
+import java.nio.charset.StandardCharsets;
+import java.security.Key;
+import java.security.PublicKey;
+import java.util.Collection;
+import java.util.Locale;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+// Проверка access токена прямо в gateway, без HTTP вызова /api/auth/validate.
+// Разбор и проверка подписи - чистая CPU работа, event loop не блокируется.
+// Отзывы (поколение токенов пользователя и jti) берутся из локального RevokedTokenRegistry,
+// отставание от authentication-service - задержка outbox relay и Kafka.
+@Component
+@Slf4j
+public class JwtAuthenticationFilter implements GlobalFilter, Ordered {
+
+    public static final String USER_ID_HEADER = "X-User-Id";
+    public static final String USER_EMAIL_HEADER = "X-User-Email";
+    public static final String USER_ROLES_HEADER = "X-User-Roles";
+    // Секрет для внутренних эндпоинтов сервисов, снаружи не принимается
+    public static final String INTERNAL_TOKEN_HEADER = "X-Internal-Token";
+
+    private static final String BEARER_PREFIX = "Bearer ";
+    // Как JwtTokenProvider.GENERATION_CLAIM в authentication-service
+    private static final String GENERATION_CLAIM = "gen";
+
+    private final AntPathMatcher pathMatcher = new AntPathMatcher();
+    private final JwksKeyResolver jwksKeyResolver;
+    private final RevokedTokenRegistry revokedTokenRegistry;
+    private final SecretKey hmacKey;
+    private final JwtParser jwtParser;
+    private final String[] publicPaths;
+    private final String[] internalPaths;
+
+    public JwtAuthenticationFilter(JwksKeyResolver jwksKeyResolver,
+                                   RevokedTokenRegistry revokedTokenRegistry,
+                                   @Value("${jwt.secret:}") String jwtSecret,
+                                   @Value("${jwt.signing.algorithm}") String signingAlgorithm,
+                                   @Value("${jwt.signing.accept-legacy-hmac}") boolean acceptLegacyHmac,
+                                   @Value("${gateway.jwt.public-paths}") String[] publicPaths,
+                                   @Value("${gateway.internal-paths}") String[] internalPaths) {
+        this.jwksKeyResolver = jwksKeyResolver;
+        this.revokedTokenRegistry = revokedTokenRegistry;
+        // Общий секрет нужен только для токенов HS512 (без kid). Те же правила, что в authentication-service:
+        // после перехода на RS256/EdDSA такие токены принимаются, только пока включен accept-legacy-hmac
+        boolean acceptHmac = "HS512".equals(signingAlgorithm) || acceptLegacyHmac;
+        this.hmacKey = !acceptHmac || jwtSecret.isBlank() ? null : Keys.hmacShaKeyFor(jwtSecret.getBytes());
+        this.jwtParser = Jwts.parser()
+                .keyLocator(this::locateVerificationKey)
+                .build();
+        this.publicPaths = publicPaths;
+        this.internalPaths = internalPaths;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        ServerHttpRequest request = exchange.getRequest();
+
+        // Внутренние эндпоинты сервисы вызывают напрямую, снаружи через gateway они недоступны
+        if (matchesAny(internalPaths, normalize(request.getPath().value()))) {
+            exchange.getResponse().setStatusCode(HttpStatus.NOT_FOUND);
+            return exchange.getResponse().setComplete();
+        }
+
+        // Внутренние заголовки выставляет только gateway, клиентские значения отбрасываем
+        ServerHttpRequest.Builder mutated = request.mutate()
+                .headers(headers -> {
+                    headers.remove(USER_ID_HEADER);
+                    headers.remove(USER_EMAIL_HEADER);
+                    headers.remove(USER_ROLES_HEADER);
+                    headers.remove(INTERNAL_TOKEN_HEADER);
+                });
+
+        String authHeader = request.getHeaders().getFirst(HttpHeaders.AUTHORIZATION);
+        if (matchesAny(publicPaths, request.getPath().value()) || authHeader == null || !authHeader.startsWith(BEARER_PREFIX)) {
+            // Анонимный запрос - решение о доступе остается за сервисом
+            return chain.filter(exchange.mutate().request(mutated.build()).build());
+        }
+
+        Claims claims;
+        try {
+            claims = jwtParser.parseSignedClaims(authHeader.substring(BEARER_PREFIX.length())).getPayload();
+        } catch (JwtException | IllegalArgumentException e) {
+            log.warn("Rejected request to {}: {}", request.getPath(), e.getMessage());
+            return unauthorized(exchange);
+        }
+        // Refresh токен подписан тем же ключом - без проверки типа прошел бы как access
+        if (!TokenType.isAccess(claims.get(TokenType.CLAIM))) {
+            log.warn("Rejected request to {}: not an access token", request.getPath());
+            return unauthorized(exchange);
+        }
+        // Наши access токены всегда содержат iat и exp; токен без exp был бы бессрочным
+        if (claims.getIssuedAt() == null || claims.getExpiration() == null) {
+            log.warn("Rejected request to {}: missing iat or exp", request.getPath());
+            return unauthorized(exchange);
+        }
+        UUID userId;
+        try {
+            userId = UUID.fromString(String.valueOf(claims.getSubject()));
+        } catch (IllegalArgumentException e) {
+            log.warn("Rejected request to {}: invalid subject", request.getPath());
+            return unauthorized(exchange);
+        }
+        // Токены, выпущенные до появления jti/gen, считаются поколением 0
+        Long generation = claims.get(GENERATION_CLAIM, Long.class);
+        if (revokedTokenRegistry.isRevoked(userId, claims.getId(), generation != null ? generation : 0L)) {
+            log.warn("Rejected request to {}: token revoked", request.getPath());
+            return unauthorized(exchange);
+        }
+
+        mutated.header(USER_ID_HEADER, userId.toString());
+        String email = claims.get("email", String.class);
+        if (email != null) {
+            mutated.header(USER_EMAIL_HEADER, email);
+        }
+        // Компактный формат - маска ролей, прежний - массив "ROLE_*"
+        Integer roleMask = claims.get(RoleMask.CLAIM, Integer.class);
+        if (roleMask != null) {
+            mutated.header(USER_ROLES_HEADER, RoleMask.headerValue(roleMask));
+        } else if (claims.get("roles") instanceof Collection<?> roles) {
+            mutated.header(USER_ROLES_HEADER, roles.stream()
+                    .map(String::valueOf)
+                    .collect(Collectors.joining(",")));
+        }
+
+        return chain.filter(exchange.mutate().request(mutated.build()).build());
+    }
+
+    @Override
+    public int getOrder() {
+        // До маршрутизации и load balancer фильтров
+        return Ordered.HIGHEST_PRECEDENCE + 100;
+    }
+
+    private Key locateVerificationKey(Header header) {
+        String kid = header instanceof ProtectedHeader protectedHeader ? protectedHeader.getKeyId() : null;
+        if (kid == null) {
+            if (hmacKey == null) {
+                throw new SignatureException("HMAC signed tokens are not accepted");
+            }
+            return hmacKey;
+        }
+        PublicKey publicKey = jwksKeyResolver.find(kid);
+        if (publicKey == null) {
+            throw new SignatureException("Unknown signing key id: " + kid);
+        }
+        return publicKey;
+    }
+
+    private boolean matchesAny(String[] patterns, String path) {
+        for (String pattern : patterns) {
+            if (pathMatcher.match(pattern, path)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Регистр, %-кодирование, повторные и конечные слэши не должны обходить сравнение с internal-paths
+    private static String normalize(String rawPath) {
+        String decoded = UriUtils.decode(rawPath, StandardCharsets.UTF_8);
+        return StringUtils.cleanPath(decoded.replaceAll("/{2,}", "/")).toLowerCase(Locale.ROOT);
+    }
+
+    private Mono<Void> unauthorized(ServerWebExchange exchange) {
+        ServerHttpResponse response = exchange.getResponse();
+        response.setStatusCode(HttpStatus.UNAUTHORIZED);
+        response.getHeaders().set(HttpHeaders.WWW_AUTHENTICATE, "Bearer error=\"invalid_token\"");
+        return response.setComplete();
+    }
+}
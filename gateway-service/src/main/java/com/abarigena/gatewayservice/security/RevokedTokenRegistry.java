@@ -0,0 +1,56 @@
+package com.abarigena.gatewayservice.security;
+
+import com.abarigena.dto.kafka.AccessTokensRevokedEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Локальная копия отзывов access токенов из AccessTokensRevokedEvent (auth-events).
+// Проверка - два поиска в ConcurrentHashMap, без сетевых вызовов. Записи живут до истечения отозванных токенов.
+@Component
+@Slf4j
+public class RevokedTokenRegistry {
+
+    // userId -> минимальное допустимое поколение токенов
+    private final Map<UUID, UserRevocation> userRevocations = new ConcurrentHashMap<>();
+    // jti -> момент истечения отозванного токена
+    private final Map<String, Instant> revokedTokenIds = new ConcurrentHashMap<>();
+
+    private record UserRevocation(long minGeneration, Instant expiresAt) {
+    }
+
+    public boolean isRevoked(UUID userId, String tokenId, long generation) {
+        UserRevocation revocation = userRevocations.get(userId);
+        if (revocation != null && generation < revocation.minGeneration()) {
+            return true;
+        }
+        return tokenId != null && revokedTokenIds.containsKey(tokenId);
+    }
+
+    public void apply(AccessTokensRevokedEvent event) {
+        if (event.getExpiresAt() == null || event.getExpiresAt().isBefore(Instant.now())) {
+            return;
+        }
+        if (event.getTokenId() != null) {
+            revokedTokenIds.put(event.getTokenId(), event.getExpiresAt());
+        } else {
+            userRevocations.merge(event.getUserId(), new UserRevocation(event.getGeneration(), event.getExpiresAt()),
+                    (existing, added) -> new UserRevocation(
+                            Math.max(existing.minGeneration(), added.minGeneration()),
+                            existing.expiresAt().isAfter(added.expiresAt()) ? existing.expiresAt() : added.expiresAt()));
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${gateway.revocation.cleanup-interval-ms}")
+    public void removeExpired() {
+        Instant now = Instant.now();
+        userRevocations.values().removeIf(revocation -> revocation.expiresAt().isBefore(now));
+        revokedTokenIds.values().removeIf(expiresAt -> expiresAt.isBefore(now));
+        log.debug("Revoked token registry: {} users, {} token ids", userRevocations.size(), revokedTokenIds.size());
+    }
+}
@@ -0,0 +1,114 @@
+package com.abarigena.userservice.benchmark;
+
+import com.abarigena.userservice.UserServiceApplication;
+import com.abarigena.userservice.entity.UserProfile;
+import com.abarigena.userservice.repository.UserProfileRepository;
+import com.abarigena.userservice.repository.UserProfileView;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// Чтение профиля целиком (findById) против проекций из UserProfileRepository при разном размере additionalInfo.
+// Запросы идут через репозиторий, как в сервисе. Таблицы создаются в отдельной схеме bench_profile_read_<runId>
+// и заполняются несжимаемым текстом (TOAST не спасает); схема удаляется после прогона.
+// После прогона печатается средний размер строки для каждого варианта выборки.
+// Нужен Postgres из docker-compose (подключение - как у сервиса).
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 10)
+@Fork(1)
+public class ProfileReadBenchmark {
+
+    private static final String PUBLIC_COLUMNS = "user_id, first_name, photo_url, average_rating, updated_at";
+    private static final String PROFILE_COLUMNS = "user_id, email, first_name, last_name, phone_number, "
+            + "phone_verified, photo_url, average_rating, created_at, updated_at";
+
+    @Param({"0", "4096", "65536"})
+    public int additionalInfoBytes;
+
+    @Param({"10000"})
+    public int rows;
+
+    private ConfigurableApplicationContext context;
+    private UserProfileRepository userProfileRepository;
+    private JdbcTemplate jdbcTemplate;
+    private UUID[] ids;
+    private final String schema = "bench_profile_read_" + UUID.randomUUID().toString().substring(0, 8);
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(UserServiceApplication.class)
+                .properties(
+                        "server.port=0",
+                        "spring.cloud.config.enabled=false",
+                        "eureka.client.enabled=false",
+                        "spring.jpa.show-sql=false",
+                        // Каждое соединение работает в одноразовой схеме, ddl-auto создает таблицы в ней
+                        "spring.datasource.hikari.schema=" + schema,
+                        "spring.datasource.hikari.connection-init-sql=CREATE SCHEMA IF NOT EXISTS " + schema,
+                        "spring.jpa.properties.hibernate.default_schema=" + schema,
+                        "spring.kafka.listener.auto-startup=false")
+                .run();
+        userProfileRepository = context.getBean(UserProfileRepository.class);
+        jdbcTemplate = context.getBean(JdbcTemplate.class);
+
+        // md5 от случайных значений почти не сжимается, размер на диске близок к additionalInfoBytes
+        jdbcTemplate.execute("INSERT INTO user_profiles (user_id, email, first_name, last_name, phone_number, "
+                + "phone_verified, photo_url, additional_info, average_rating, created_at, updated_at) "
+                + "SELECT gen_random_uuid(), 'user' || g || '@example.com', "
+                + "'First' || g, 'Last' || g, '+7' || (9000000000 + g), true, "
+                + "'https://cdn.example.com/photos/' || g || '.jpg', "
+                + "(SELECT coalesce(string_agg(md5(random()::text || g || i), ''), '') "
+                + "FROM generate_series(1, " + (additionalInfoBytes / 32) + ") i), "
+                + "4.50, now(), now() FROM generate_series(1, " + rows + ") g");
+        jdbcTemplate.execute("VACUUM ANALYZE user_profiles");
+        ids = jdbcTemplate.queryForList("SELECT user_id FROM user_profiles", UUID.class).toArray(new UUID[0]);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        try {
+            Map<String, Object> sizes = jdbcTemplate.queryForMap("SELECT avg(pg_column_size(t.*))::bigint AS full_row, "
+                    + "avg(pg_column_size(row(" + PROFILE_COLUMNS + ")))::bigint AS profile, "
+                    + "avg(pg_column_size(row(" + PUBLIC_COLUMNS + ")))::bigint AS public_profile FROM user_profiles t");
+            System.out.printf("%n[additionalInfo=%d] avg row bytes: full=%s, profile=%s, public=%s%n",
+                    additionalInfoBytes, sizes.get("full_row"), sizes.get("profile"), sizes.get("public_profile"));
+            jdbcTemplate.execute("DROP SCHEMA IF EXISTS " + schema + " CASCADE");
+        } finally {
+            context.close();
+        }
+    }
+
+    // Прежний путь: findById загружает всю сущность вместе с additional_info
+    @Benchmark
+    public void fullEntity(Blackhole blackhole) {
+        UserProfile profile = userProfileRepository.findById(randomId()).orElseThrow();
+        blackhole.consume(profile.getAdditionalInfo());
+        blackhole.consume(profile);
+    }
+
+    // getCurrentUserProfile(id, false)
+    @Benchmark
+    public void profileWithoutAdditionalInfo(Blackhole blackhole) {
+        blackhole.consume(userProfileRepository.findByUserId(randomId(), UserProfileView.class).orElseThrow());
+    }
+
+    // getPublicUserProfile при промахе кэша
+    @Benchmark
+    public void publicProfile(Blackhole blackhole) {
+        blackhole.consume(userProfileRepository.findPublicProfileById(randomId()).orElseThrow());
+    }
+
+    private UUID randomId() {
+        return ids[ThreadLocalRandom.current().nextInt(ids.length)];
+    }
+}
@@ -0,0 +1,82 @@
+package com.abarigena.userservice.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.kafka.ConcurrentKafkaListenerContainerFactoryConfigurer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.kafka.core.KafkaOperations;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.core.ProducerFactory;
+import org.springframework.kafka.listener.ContainerProperties;
+import org.springframework.kafka.listener.DeadLetterPublishingRecoverer;
+import org.springframework.kafka.listener.DefaultErrorHandler;
+import org.springframework.kafka.support.serializer.SerializationUtils;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@Configuration
+@Slf4j
+public class KafkaConsumerConfig {
+
+    // Публикация в DLT цепочки повторов (<user-service-retry>-dlt). Запись, которую не удалось
+    // десериализовать, уходит туда исходными байтами - для них отдельный шаблон с ByteArraySerializer
+    @Bean
+    public DeadLetterPublishingRecoverer deadLetterPublishingRecoverer(
+            ProducerFactory<Object, Object> producerFactory,
+            KafkaTemplate<String, Object> kafkaTemplate,
+            @Value("${spring.kafka.topic.user-service-retry}") String retryTopic) {
+        KafkaTemplate<Object, Object> bytesTemplate = new KafkaTemplate<>(producerFactory,
+                Map.<String, Object>of(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, ByteArraySerializer.class));
+        Map<Class<?>, KafkaOperations<?, ?>> templates = new LinkedHashMap<>();
+        templates.put(byte[].class, bytesTemplate);
+        templates.put(Object.class, kafkaTemplate);
+        String deadLetterTopic = retryTopic + "-dlt";
+        return new DeadLetterPublishingRecoverer(templates, (record, ex) -> new TopicPartition(deadLetterTopic, -1));
+    }
+
+    // Обработчик ошибок для всех фабрик из автоконфигурации и ниже: ошибка десериализации не повторяется,
+    // запись сразу уходит в DLT. Для остальных ошибок поведение прежнее - повторы, затем запись в лог
+    @Bean
+    public DefaultErrorHandler kafkaErrorHandler(DeadLetterPublishingRecoverer deadLetterPublishingRecoverer) {
+        return new DefaultErrorHandler((record, ex) -> {
+            if (record.headers().lastHeader(SerializationUtils.VALUE_DESERIALIZER_EXCEPTION_HEADER) != null) {
+                deadLetterPublishingRecoverer.accept(record, ex);
+            } else {
+                log.error("Backoff exhausted for record {}-{}@{}", record.topic(), record.partition(), record.offset(), ex);
+            }
+        });
+    }
+
+    // Те же настройки, что у kafkaListenerContainerFactory из автоконфигурации, но листенер получает
+    // все записи poll() списком, а смещения коммитятся один раз после обработки пачки
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<Object, Object> batchKafkaListenerContainerFactory(
+            ConcurrentKafkaListenerContainerFactoryConfigurer configurer,
+            ConsumerFactory<Object, Object> consumerFactory) {
+        ConcurrentKafkaListenerContainerFactory<Object, Object> factory = new ConcurrentKafkaListenerContainerFactory<>();
+        configurer.configure(factory, consumerFactory);
+        factory.setBatchListener(true);
+        factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.BATCH);
+        return factory;
+    }
+
+    // Подтверждения из рабочих потоков и не по порядку: контейнер держит их до закрытия "дыр"
+    // и коммитит наибольшее смещение, до которого обработаны все записи партиции
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<Object, Object> orderedKafkaListenerContainerFactory(
+            ConcurrentKafkaListenerContainerFactoryConfigurer configurer,
+            ConsumerFactory<Object, Object> consumerFactory) {
+        ConcurrentKafkaListenerContainerFactory<Object, Object> factory = new ConcurrentKafkaListenerContainerFactory<>();
+        configurer.configure(factory, consumerFactory);
+        factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.MANUAL);
+        factory.getContainerProperties().setAsyncAcks(true);
+        return factory;
+    }
+}
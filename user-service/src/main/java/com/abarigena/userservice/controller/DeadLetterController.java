@@ -0,0 +1,43 @@
+package com.abarigena.userservice.controller;
+
+import com.abarigena.userservice.exception.BadRequestException;
+import com.abarigena.userservice.exception.ForbiddenException;
+import com.abarigena.userservice.kafka.DeadLetterReplayService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Arrays;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/admin/dlt")
+@RequiredArgsConstructor
+@Slf4j
+public class DeadLetterController {
+
+    // Выставляет gateway по access токену, клиентское значение он отбрасывает
+    private static final String USER_ROLES_HEADER = "X-User-Roles";
+    private static final String ADMIN_ROLE = "ROLE_ADMIN";
+
+    private final DeadLetterReplayService deadLetterReplayService;
+
+    @Value("${app.kafka.dlt.replay-max-records}")
+    private int replayMaxRecords;
+
+    // Вернуть до max записей из DLT в цепочку повторов
+    @PostMapping("/replay")
+    public ResponseEntity<Map<String, Integer>> replay(@RequestParam(defaultValue = "100") int max,
+                                                       @RequestHeader(value = USER_ROLES_HEADER, required = false) String roles) {
+        if (roles == null || !Arrays.asList(roles.split(",")).contains(ADMIN_ROLE)) {
+            throw new ForbiddenException("Dead-letter replay requires " + ADMIN_ROLE);
+        }
+        if (max <= 0 || max > replayMaxRecords) {
+            throw new BadRequestException("max must be between 1 and " + replayMaxRecords);
+        }
+        log.info("Replaying up to {} dead-letter records", max);
+        return ResponseEntity.ok(Map.of("replayed", deadLetterReplayService.replay(max)));
+    }
+}
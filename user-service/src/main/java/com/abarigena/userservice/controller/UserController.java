@@ -1,5 +1,6 @@
 package com.abarigena.userservice.controller;
 
+import com.abarigena.userservice.dto.BatchPublicUsersDto;
 import com.abarigena.userservice.dto.ConfirmPhoneDto;
 import com.abarigena.userservice.dto.PublicUserDto;
 import com.abarigena.userservice.dto.UserProfileDto;
@@ -10,9 +11,14 @@ import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Map;
 import java.util.UUID;
 
 @RestController
@@ -26,10 +32,21 @@ public class UserController {
 
     // Получение полного профиля пользователя по ID (замена /me)
     @GetMapping("/{id}/profile") // Новый путь вместо /me
-    public ResponseEntity<UserProfileDto> getUserProfile(@PathVariable UUID id) {
+    public ResponseEntity<UserProfileDto> getUserProfile(@PathVariable UUID id,
+                                                         @RequestParam(defaultValue = "true") boolean includeAdditionalInfo,
+                                                         WebRequest webRequest) {
         log.warn("SECURITY WARNING: Accessing user profile {} without authentication", id); // Предупреждение
-        UserProfileDto userProfile = userService.getCurrentUserProfile(id); // Вызываем метод с ID
-        return ResponseEntity.ok(userProfile);
+        String variant = includeAdditionalInfo ? "full" : "short";
+        // Клиент прислал ETag: сверяем по одной колонке updatedAt, профиль не загружаем
+        if (webRequest.getHeader(HttpHeaders.IF_NONE_MATCH) != null
+                && webRequest.checkNotModified(eTag(userService.getProfileVersion(id), variant))) {
+            return null; // 304 Not Modified уже выставлен
+        }
+        // includeAdditionalInfo=false - без тяжелого поля additionalInfo
+        UserProfileDto userProfile = userService.getCurrentUserProfile(id, includeAdditionalInfo); // Вызываем метод с ID
+        return ResponseEntity.ok()
+                .eTag(eTag(userProfile.getUpdatedAt(), variant))
+                .body(userProfile);
     }
 
     // Обновление профиля пользователя по ID (замена /me)
@@ -63,7 +80,22 @@ public class UserController {
     @GetMapping("/{id}")
     public ResponseEntity<PublicUserDto> getPublicUserProfile(@PathVariable UUID id) {
         PublicUserDto publicProfile = userService.getPublicUserProfile(id);
-        return ResponseEntity.ok(publicProfile);
+        // Профиль из кэша; при совпадении с If-None-Match Spring ответит 304 без сериализации тела
+        return ResponseEntity.ok()
+                .eTag(eTag(publicProfile.getUpdatedAt(), "public"))
+                .body(publicProfile);
+    }
+
+    // Публичные профили пачкой (списки поездок): ключ - id, ненайденные id в ответ не попадают
+    @PostMapping("/public/batch")
+    public ResponseEntity<Map<UUID, PublicUserDto>> getPublicUserProfiles(@Valid @RequestBody BatchPublicUsersDto batchPublicUsersDto) {
+        return ResponseEntity.ok(userService.getPublicUserProfiles(batchPublicUsersDto.getIds()));
+    }
+
+    // Версия - updatedAt в микросекундах (точность timestamp в Postgres); variant различает представления
+    private static String eTag(LocalDateTime updatedAt, String variant) {
+        long micros = updatedAt.toEpochSecond(ZoneOffset.UTC) * 1_000_000 + updatedAt.getNano() / 1_000;
+        return "\"" + variant + "-" + Long.toString(micros, 36) + "\"";
     }
 
     // Вспомогательный класс для простых ответов
@@ -0,0 +1,18 @@
+package com.abarigena.userservice.dto;
+
+import jakarta.validation.constraints.NotEmpty;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Set;
+import java.util.UUID;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchPublicUsersDto {
+
+    @NotEmpty(message = "User ids cannot be empty")
+    private Set<UUID> ids; // Размер ограничен app.users.public-batch.max-size
+}
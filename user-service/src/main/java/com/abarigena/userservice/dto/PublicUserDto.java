@@ -1,15 +1,23 @@
 package com.abarigena.userservice.dto;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
+import lombok.NoArgsConstructor;
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
 import java.util.UUID;
 
 @Data
 @Builder
+@NoArgsConstructor
+@AllArgsConstructor // Нужен для проекции в UserProfileRepository
 public class PublicUserDto {
     private UUID id;
     private String firstName;
     private String photoUrl;
     private BigDecimal averageRating;
+    @JsonIgnore
+    private LocalDateTime updatedAt; // Версия для ETag, в тело ответа не попадает
 }
\ No newline at end of file
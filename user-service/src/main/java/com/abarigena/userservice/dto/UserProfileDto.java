@@ -1,5 +1,6 @@
 package com.abarigena.userservice.dto;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.Builder;
 import lombok.Data;
 import java.math.BigDecimal;
@@ -19,4 +20,6 @@ public class UserProfileDto {
     private String additionalInfo;
     private LocalDateTime registrationDate;
     private BigDecimal averageRating;
+    @JsonIgnore
+    private LocalDateTime updatedAt; // Версия для ETag, в тело ответа не попадает
 }
\ No newline at end of file
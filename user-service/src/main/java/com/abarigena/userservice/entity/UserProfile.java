@@ -49,6 +49,9 @@ public class UserProfile {
     @Column(precision = 3, scale = 2, columnDefinition = "DECIMAL(3,2) default 0.0")
     private BigDecimal averageRating = BigDecimal.ZERO;
 
+    // Время события, чей рейтинг сейчас записан: более старые события (повторы, возврат из DLT) его не перезапишут
+    private LocalDateTime ratingUpdatedAt;
+
     @CreationTimestamp // Время создания профиля (после получения события)
     @Column(nullable = false, updatable = false)
     private LocalDateTime createdAt;
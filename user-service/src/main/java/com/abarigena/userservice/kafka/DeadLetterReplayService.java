@@ -0,0 +1,114 @@
+package com.abarigena.userservice.kafka;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.PartitionInfo;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.header.Header;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+
+// Возврат записей из DLT в начало цепочки повторов. Прочитанное фиксируется смещениями отдельной
+// группы, поэтому повторный вызов продолжает с места остановки и одну запись дважды не возвращает.
+@Service
+@Slf4j
+public class DeadLetterReplayService {
+
+    private static final Duration POLL_TIMEOUT = Duration.ofSeconds(2);
+
+    private final ConsumerFactory<Object, Object> consumerFactory;
+    private final KafkaTemplate<String, Object> kafkaTemplate;
+    private final Counter replayed;
+    private final String retryTopic;
+    private final String deadLetterTopic;
+    private final String replayGroup;
+
+    public DeadLetterReplayService(ConsumerFactory<Object, Object> consumerFactory,
+                                   KafkaTemplate<String, Object> kafkaTemplate,
+                                   MeterRegistry meterRegistry,
+                                   @Value("${spring.kafka.topic.user-service-retry}") String retryTopic,
+                                   @Value("${app.kafka.dlt.replay-group}") String replayGroup) {
+        this.consumerFactory = consumerFactory;
+        this.kafkaTemplate = kafkaTemplate;
+        this.replayed = Counter.builder("user.kafka.dlt.replayed").register(meterRegistry);
+        this.retryTopic = retryTopic;
+        this.deadLetterTopic = retryTopic + "-dlt";
+        this.replayGroup = replayGroup;
+    }
+
+    // Один прогон за раз: KafkaConsumer не потокобезопасен, а параллельные прогоны вернули бы записи дважды
+    public synchronized int replay(int maxRecords) {
+        Properties properties = new Properties();
+        properties.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
+        properties.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
+        properties.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, maxRecords);
+
+        try (Consumer<Object, Object> consumer = consumerFactory.createConsumer(replayGroup, null, "-dlt-replay", properties)) {
+            List<PartitionInfo> partitions = consumer.partitionsFor(deadLetterTopic);
+            if (partitions == null || partitions.isEmpty()) {
+                return 0;
+            }
+            consumer.assign(partitions.stream().map(p -> new TopicPartition(p.topic(), p.partition())).toList());
+
+            Map<TopicPartition, OffsetAndMetadata> offsets = new HashMap<>();
+            List<CompletableFuture<SendResult<String, Object>>> sends = new ArrayList<>();
+            while (sends.size() < maxRecords) {
+                var records = consumer.poll(POLL_TIMEOUT);
+                if (records.isEmpty()) {
+                    break;
+                }
+                for (ConsumerRecord<Object, Object> record : records) {
+                    if (sends.size() >= maxRecords) {
+                        break;
+                    }
+                    offsets.put(new TopicPartition(record.topic(), record.partition()),
+                            new OffsetAndMetadata(record.offset() + 1));
+                    // Не десериализуемую запись вернуть некуда - повтор упадет так же, в DLT она видна до retention
+                    if (record.value() == null) {
+                        log.warn("Skipping undeserializable dead-letter record {}-{}@{}",
+                                record.topic(), record.partition(), record.offset());
+                        continue;
+                    }
+                    sends.add(kafkaTemplate.send(toRetry(record)));
+                }
+            }
+            // Смещения фиксируем только после подтверждения всех отправок
+            CompletableFuture.allOf(sends.toArray(CompletableFuture[]::new)).join();
+            if (!offsets.isEmpty()) {
+                consumer.commitSync(offsets);
+            }
+            replayed.increment(sends.size());
+            log.info("Replayed {} records from {} to {}", sends.size(), deadLetterTopic, retryTopic);
+            return sends.size();
+        }
+    }
+
+    // Служебные заголовки DLT не переносим, исходное происхождение записи сохраняем
+    private ProducerRecord<String, Object> toRetry(ConsumerRecord<Object, Object> record) {
+        ProducerRecord<String, Object> retry = new ProducerRecord<>(retryTopic,
+                record.key() != null ? record.key().toString() : null, record.value());
+        for (Header header : record.headers()) {
+            if (header.key().startsWith("x-source-") || header.key().equals(FailedEventForwarder.FIRST_FAILURE_HEADER)) {
+                retry.headers().add(header);
+            }
+        }
+        return retry;
+    }
+}
@@ -0,0 +1,95 @@
+package com.abarigena.userservice.kafka;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.springframework.core.log.LogAccessor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.KafkaException;
+import org.springframework.kafka.listener.DeadLetterPublishingRecoverer;
+import org.springframework.kafka.support.serializer.DeserializationException;
+import org.springframework.kafka.support.serializer.SerializationUtils;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+// Запись, которую не удалось обработать, уходит в общий топик повторов сервиса (RetryListener),
+// чтобы не блокировать партицию основного топика. Отправка синхронная: смещение исходной записи
+// подтверждается, только когда она уже лежит в топике повторов.
+@Component
+@Slf4j
+public class FailedEventForwarder {
+
+    public static final String SOURCE_TOPIC_HEADER = "x-source-topic";
+    public static final String SOURCE_PARTITION_HEADER = "x-source-partition";
+    public static final String SOURCE_OFFSET_HEADER = "x-source-offset";
+    public static final String FIRST_FAILURE_HEADER = "x-first-failure";
+
+    private static final LogAccessor LOG_ACCESSOR = new LogAccessor(FailedEventForwarder.class);
+
+    private final KafkaTemplate<String, Object> kafkaTemplate;
+    private final DeadLetterPublishingRecoverer deadLetterPublishingRecoverer;
+    private final MeterRegistry meterRegistry;
+    private final String retryTopic;
+    private final long sendTimeoutMs;
+
+    public FailedEventForwarder(KafkaTemplate<String, Object> kafkaTemplate,
+                                DeadLetterPublishingRecoverer deadLetterPublishingRecoverer,
+                                MeterRegistry meterRegistry,
+                                @Value("${spring.kafka.topic.user-service-retry}") String retryTopic,
+                                @Value("${app.kafka.retry.send-timeout-ms}") long sendTimeoutMs) {
+        this.kafkaTemplate = kafkaTemplate;
+        this.deadLetterPublishingRecoverer = deadLetterPublishingRecoverer;
+        this.meterRegistry = meterRegistry;
+        this.retryTopic = retryTopic;
+        this.sendTimeoutMs = sendTimeoutMs;
+    }
+
+    public void forward(ConsumerRecord<String, ?> record, Exception cause) {
+        log.warn("Forwarding record {}-{}@{} to {}: {}",
+                record.topic(), record.partition(), record.offset(), retryTopic, cause.getMessage());
+        ProducerRecord<String, Object> retry = new ProducerRecord<>(retryTopic, record.key(), record.value());
+        retry.headers()
+                .add(SOURCE_TOPIC_HEADER, bytes(record.topic()))
+                .add(SOURCE_PARTITION_HEADER, bytes(String.valueOf(record.partition())))
+                .add(SOURCE_OFFSET_HEADER, bytes(String.valueOf(record.offset())))
+                .add(FIRST_FAILURE_HEADER, bytes(cause.getClass().getName() + ": " + cause.getMessage()));
+        try {
+            kafkaTemplate.send(retry).get(sendTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new KafkaException("Interrupted while forwarding failed record", e);
+        } catch (ExecutionException | TimeoutException e) {
+            // Исходная запись не подтверждается - контейнер получит ее повторно
+            throw new KafkaException("Failed to forward record to " + retryTopic, e);
+        }
+        Counter.builder("user.kafka.retry.forwarded")
+                .tag("source", record.topic())
+                .register(meterRegistry)
+                .increment();
+    }
+
+    // Пакетный листенер получает "ядовитую" запись со значением null (ErrorHandlingDeserializer).
+    // Повторять ее бесполезно - сразу в DLT. Ошибка отправки пробрасывается, пачка придет повторно
+    public boolean deadLetterIfUndeserializable(ConsumerRecord<?, ?> record) {
+        DeserializationException error = SerializationUtils.getExceptionFromHeader(record,
+                SerializationUtils.VALUE_DESERIALIZER_EXCEPTION_HEADER, LOG_ACCESSOR);
+        if (error == null) {
+            return false;
+        }
+        log.warn("Record {}-{}@{} could not be deserialized, moving to dead-letter topic: {}",
+                record.topic(), record.partition(), record.offset(), error.getMessage());
+        deadLetterPublishingRecoverer.accept(record, error);
+        return true;
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -3,9 +3,9 @@ package com.abarigena.userservice.kafka;
 import com.abarigena.dto.kafka.UserRegisteredEvent;
 import com.abarigena.userservice.service.UserService;
 import lombok.RequiredArgsConstructor;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.kafka.annotation.KafkaListener;
-import org.springframework.messaging.handler.annotation.Payload;
 import org.springframework.stereotype.Service;
 
 @Service
@@ -14,34 +14,31 @@ import org.springframework.stereotype.Service;
 public class KafkaConsumerService {
 
     private final UserService userService; // Инжектируем основной сервис
+    private final FailedEventForwarder failedEventForwarder;
 
     // Слушаем топик, указанный в application.yml для user-registered
+    // Поштучный режим (app.kafka.user-registered.mode=record), пакетный - UserRegisteredBatchListener,
+    // параллельный с порядком по ключу - UserRegisteredOrderedListener
     @KafkaListener(topics = "${spring.kafka.topic.user-registered}",
             groupId = "${spring.kafka.consumer.group-id}",
-            containerFactory = "kafkaListenerContainerFactory")
-    public void listenUserRegistered(@Payload UserRegisteredEvent event) {
+            containerFactory = "kafkaListenerContainerFactory",
+            autoStartup = "#{'${app.kafka.user-registered.mode}' == 'record'}")
+    public void listenUserRegistered(ConsumerRecord<String, Object> record) {
+        // В auth-events идут и другие события auth-service
+        if (!(record.value() instanceof UserRegisteredEvent event)) {
+            return;
+        }
         log.info("Received UserRegisteredEvent for userId: {}", event.getUserId());
         try {
             userService.createUserProfile(event);
         } catch (Exception e) {
             log.error("Error processing UserRegisteredEvent for userId {}: {}", event.getUserId(), e.getMessage(), e);
-
+            // Повторы в отдельном топике, партиция не блокируется
+            failedEventForwarder.forward(record, e);
         }
     }
 
-//
-//    @KafkaListener(topics = "${app.kafka.topic-user-rating-updated}",
-//            groupId = "${spring.kafka.consumer.group-id}",
-//            containerFactory = "kafkaListenerContainerFactory")
-//    public void listenUserRatingUpdated(@Payload UserRatingUpdatedEvent event) {
-//        log.info("Received UserRatingUpdatedEvent for userId: {}", event.getUserId());
-//        try {
-//            userService.updateUserRating(event);
-//        } catch (Exception e) {
-//            log.error("Error processing UserRatingUpdatedEvent for userId {}: {}", event.getUserId(), e.getMessage(), e);
-//
-//        }
-//    }
+    // UserRatingUpdatedEvent обрабатывает UserRatingBatchListener (пакетно, с объединением по userId)
 
      /*
 
@@ -3,22 +3,51 @@ package com.abarigena.userservice.kafka;
 
 import com.abarigena.dto.kafka.UserContactVerifiedEvent;
 import com.abarigena.dto.kafka.UserProfileUpdatedEvent;
-import lombok.RequiredArgsConstructor;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
 import java.time.Instant;
+import java.util.HashMap;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
 
 @Service
-@RequiredArgsConstructor
 @Slf4j
 public class KafkaProducerService {
 
+    private static final long DISPATCH_SHUTDOWN_TIMEOUT_MS = 10_000;
+    private static final Runnable STOP = () -> {
+    };
+
     private final KafkaTemplate<String, Object> kafkaTemplate;
+    private final MeterRegistry meterRegistry;
+
+    // Все send'ы идут с одного потока: send может ждать метаданных до max.block.ms, и это не должно
+    // держать блокировку ConcurrentHashMap, потоки HTTP (afterCommit) и планировщик. Задачи ставятся
+    // в очередь под блокировкой ключа, поэтому события пользователя уходят в порядке постановки.
+    // Очередь ограничена, но события не теряются: при заполнении изменения остаются в окне до следующего
+    // flush, а остальные отправители ждут места (обратное давление)
+    private final BlockingQueue<Runnable> dispatchQueue;
+    private final Thread dispatcher;
+    private final Counter deferred;
+    private volatile boolean stopped;
+
+    // Изменения профиля, накопленные за текущее окно, по пользователю
+    private final Map<UUID, PendingProfileUpdate> pendingProfileUpdates = new ConcurrentHashMap<>();
+
+    @Value("${app.kafka.profile-updates.window-ms}")
+    private long profileUpdatesWindowMs;
 
     @Value("${spring.kafka.topic.user-profile-updated}")
     private String userProfileUpdatedTopic;
@@ -26,18 +55,94 @@ public class KafkaProducerService {
     @Value("${spring.kafka.topic.user-contact-verified}")
     private String userContactVerifiedTopic;
 
+    public KafkaProducerService(KafkaTemplate<String, Object> kafkaTemplate,
+                                MeterRegistry meterRegistry,
+                                @Value("${app.kafka.profile-updates.dispatch-queue-capacity}") int dispatchQueueCapacity) {
+        this.kafkaTemplate = kafkaTemplate;
+        this.meterRegistry = meterRegistry;
+        this.dispatchQueue = new LinkedBlockingQueue<>(dispatchQueueCapacity);
+        this.dispatcher = Thread.ofPlatform().name("profile-events-dispatcher").unstarted(this::dispatchLoop);
+        // Сколько раз окно пользователя осталось ждать из-за заполненной очереди
+        this.deferred = meterRegistry.counter("user.profile-events.deferred");
+        Gauge.builder("user.profile-events.dispatch.queue", dispatchQueue, BlockingQueue::size)
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void startDispatcher() {
+        dispatcher.start();
+    }
+
+    // Автосохранение клиента дает серию мелких правок: изменения пользователя копятся в окне
+    // (app.kafka.profile-updates.window-ms от первой правки) и уходят одним событием, более поздние значения полей побеждают
     public void sendUserProfileUpdatedEvent(UUID userId, Map<String, Object> updatedFields) {
+        meterRegistry.counter("user.profile-events.changes").increment();
+        Instant now = Instant.now();
+        pendingProfileUpdates.compute(userId, (id, pending) -> {
+            PendingProfileUpdate update = pending != null ? pending : new PendingProfileUpdate(now);
+            update.fields.putAll(updatedFields);
+            update.lastChangedAt = now;
+            return update;
+        });
+    }
+
+    @Scheduled(fixedDelayString = "${app.kafka.profile-updates.flush-interval-ms}")
+    public void flushDueProfileUpdates() {
+        Instant dueBefore = Instant.now().minusMillis(profileUpdatesWindowMs);
+        for (UUID userId : pendingProfileUpdates.keySet()) {
+            pendingProfileUpdates.computeIfPresent(userId, (id, pending) -> {
+                if (pending.firstChangedAt.isAfter(dueBefore)) {
+                    return pending;
+                }
+                // Очередь заполнена - запись остается и уйдет на одном из следующих flush
+                if (!dispatchQueue.offer(() -> publishProfileUpdated(id, pending))) {
+                    deferred.increment();
+                    return pending;
+                }
+                return null;
+            });
+        }
+    }
+
+    // Остаток окна не теряем при остановке: ставим в очередь, ждем, пока очередь уйдет в продюсер,
+    // и только потом останавливаем поток отправки. Поздние события после этого отправляются напрямую
+    @PreDestroy
+    public void flushAllProfileUpdates() throws InterruptedException {
+        for (UUID userId : pendingProfileUpdates.keySet()) {
+            enqueuePendingProfileUpdate(userId);
+        }
+        stopped = true;
+        dispatchQueue.put(STOP);
+        dispatcher.join(DISPATCH_SHUTDOWN_TIMEOUT_MS);
+        if (dispatcher.isAlive()) {
+            log.warn("Profile events dispatcher did not drain {} events in {} ms", dispatchQueue.size(), DISPATCH_SHUTDOWN_TIMEOUT_MS);
+            return;
+        }
+        // Отправители, успевшие встать в очередь после STOP
+        Runnable task;
+        while ((task = dispatchQueue.poll()) != null) {
+            if (task != STOP) {
+                task.run();
+            }
+        }
+    }
+
+    // Запись снимается атомарно, а ставится в очередь уже вне блокировки ключа - с ожиданием места
+    private void enqueuePendingProfileUpdate(UUID userId) throws InterruptedException {
+        PendingProfileUpdate pending = pendingProfileUpdates.remove(userId);
+        if (pending != null) {
+            dispatch(() -> publishProfileUpdated(userId, pending));
+        }
+    }
+
+    private void publishProfileUpdated(UUID userId, PendingProfileUpdate pending) {
         UserProfileUpdatedEvent event = UserProfileUpdatedEvent.builder()
                 .userId(userId)
-                .updatedFields(updatedFields)
-                .timestamp(Instant.now())
+                .updatedFields(pending.fields)
+                .timestamp(pending.lastChangedAt)
                 .build();
-        try {
-            log.info("Sending UserProfileUpdatedEvent for userId: {}", userId);
-            kafkaTemplate.send(userProfileUpdatedTopic, userId.toString(), event);
-        } catch (Exception e) {
-            log.error("Error sending UserProfileUpdatedEvent for userId {}: {}", userId, e.getMessage(), e);
-        }
+        meterRegistry.counter("user.profile-events.published").increment();
+        send(userProfileUpdatedTopic, userId, event);
     }
 
     public void sendUserContactVerifiedEvent(UUID userId, String contactType) {
@@ -46,11 +151,58 @@ public class KafkaProducerService {
                 .contactType(contactType)
                 .timestamp(Instant.now())
                 .build();
+        log.info("Queueing UserContactVerifiedEvent for userId: {}, type: {}", userId, contactType);
         try {
-            log.info("Sending UserContactVerifiedEvent for userId: {}, type: {}", userId, contactType);
-            kafkaTemplate.send(userContactVerifiedTopic, userId.toString(), event);
+            // Тот же топик и ключ: накопленные изменения профиля должны уйти раньше
+            enqueuePendingProfileUpdate(userId);
+            dispatch(() -> send(userContactVerifiedTopic, userId, event));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.error("Interrupted while queueing UserContactVerifiedEvent for userId {}", userId);
+        }
+    }
+
+    // Ждет места в очереди; после остановки потока отправки отправляет в текущем потоке
+    private void dispatch(Runnable task) throws InterruptedException {
+        if (stopped) {
+            task.run();
+            return;
+        }
+        dispatchQueue.put(task);
+    }
+
+    private void dispatchLoop() {
+        while (true) {
+            Runnable task;
+            try {
+                task = dispatchQueue.take();
+            } catch (InterruptedException e) {
+                return;
+            }
+            if (task == STOP) {
+                return;
+            }
+            task.run();
+        }
+    }
+
+    private void send(String topic, UUID userId, Object event) {
+        try {
+            log.info("Sending {} for userId: {}", event.getClass().getSimpleName(), userId);
+            kafkaTemplate.send(topic, userId.toString(), event);
         } catch (Exception e) {
-            log.error("Error sending UserContactVerifiedEvent for userId {}: {}", userId, e.getMessage(), e);
+            log.error("Error sending {} for userId {}: {}", event.getClass().getSimpleName(), userId, e.getMessage(), e);
+        }
+    }
+
+    private static class PendingProfileUpdate {
+        private final Map<String, Object> fields = new HashMap<>(); // HashMap: значения полей могут быть null
+        private final Instant firstChangedAt;
+        private Instant lastChangedAt;
+
+        private PendingProfileUpdate(Instant firstChangedAt) {
+            this.firstChangedAt = firstChangedAt;
+            this.lastChangedAt = firstChangedAt;
         }
     }
-}
\ No newline at end of file
+}
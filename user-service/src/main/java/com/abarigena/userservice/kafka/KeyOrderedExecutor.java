@@ -0,0 +1,118 @@
+package com.abarigena.userservice.kafka;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Параллельная обработка записей одной партиции с сохранением порядка внутри ключа:
+// задачи одного ключа выстраиваются в цепочку, разные ключи идут в пуле независимо.
+// Число задач в работе ограничено - при заполнении поток консьюмера ждет (обратное давление).
+// Упавшая задача повторяется в том же воркере с растущей паузой, пока не пройдет: иначе запись
+// осталась бы неподтвержденной и навсегда остановила коммит смещений партиции.
+@Slf4j
+public class KeyOrderedExecutor {
+
+    private final ExecutorService workers;
+    private final Semaphore permits;
+    private final Map<String, CompletableFuture<Void>> tails = new ConcurrentHashMap<>();
+    private final Map<String, Integer> depths = new ConcurrentHashMap<>();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final DistributionSummary keyDepth;
+    private final Counter retries;
+    private final long retryBackoffMs;
+    private final long maxRetryBackoffMs;
+
+    public KeyOrderedExecutor(String name, int workerCount, int maxInFlight,
+                              long retryBackoffMs, long maxRetryBackoffMs, MeterRegistry meterRegistry) {
+        this.retryBackoffMs = retryBackoffMs;
+        this.maxRetryBackoffMs = maxRetryBackoffMs;
+        this.workers = Executors.newFixedThreadPool(workerCount, Thread.ofPlatform().name(name + "-worker-", 0).factory());
+        this.permits = new Semaphore(maxInFlight);
+        Gauge.builder("user.kafka.ordered.in-flight", inFlight, AtomicInteger::get)
+                .tag("listener", name).register(meterRegistry);
+        Gauge.builder("user.kafka.ordered.keys", depths, Map::size)
+                .tag("listener", name).register(meterRegistry);
+        // Сколько записей того же ключа уже ждало в очереди на момент постановки
+        this.keyDepth = DistributionSummary.builder("user.kafka.ordered.key.depth")
+                .tag("listener", name).register(meterRegistry);
+        this.retries = Counter.builder("user.kafka.ordered.retries")
+                .tag("listener", name).register(meterRegistry);
+    }
+
+    // onDone (подтверждение) вызывается только после успешного task
+    public void submit(String key, Runnable task, Runnable onDone) {
+        try {
+            permits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a free worker", e);
+        }
+        inFlight.incrementAndGet();
+        keyDepth.record(depths.merge(key, 1, Integer::sum) - 1);
+
+        CompletableFuture<Void> next = tails.compute(key, (k, tail) ->
+                (tail != null ? tail : CompletableFuture.<Void>completedFuture(null))
+                        // Цепочка ключа продолжается при любом исходе предыдущей задачи
+                        .handle((result, ex) -> null)
+                        .thenRunAsync(() -> run(key, task, onDone), workers));
+        // Хвост завершившейся цепочки больше не нужен
+        next.whenComplete((result, ex) -> tails.remove(key, next));
+    }
+
+    // Разрешение и счетчики освобождаются в finally при любом исходе, включая ошибку onDone
+    private void run(String key, Runnable task, Runnable onDone) {
+        try {
+            if (runUntilSuccess(key, task)) {
+                onDone.run();
+            }
+        } catch (Exception e) {
+            log.error("Error completing record with key {}: {}", key, e.getMessage(), e);
+        } finally {
+            depths.computeIfPresent(key, (k, depth) -> depth == 1 ? null : depth - 1);
+            inFlight.decrementAndGet();
+            permits.release();
+        }
+    }
+
+    // false - прервано остановкой пула: запись не подтверждена и придет повторно после рестарта
+    private boolean runUntilSuccess(String key, Runnable task) {
+        long backoffMs = retryBackoffMs;
+        for (int attempt = 1; ; attempt++) {
+            try {
+                task.run();
+                return true;
+            } catch (Exception e) {
+                retries.increment();
+                log.error("Error processing record with key {} (attempt {}), retrying in {} ms: {}",
+                        key, attempt, backoffMs, e.getMessage(), e);
+            }
+            try {
+                Thread.sleep(backoffMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+            backoffMs = Math.min(backoffMs * 2, maxRetryBackoffMs);
+        }
+    }
+
+    // Незавершенные записи не подтверждены и будут получены повторно после рестарта
+    public void shutdown(long timeoutMs) throws InterruptedException {
+        workers.shutdown();
+        if (!workers.awaitTermination(timeoutMs, TimeUnit.MILLISECONDS)) {
+            log.warn("{} records still in flight on shutdown", inFlight.get());
+            workers.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package com.abarigena.userservice.kafka;
+
+import com.abarigena.dto.kafka.UserProfileUpdatedEvent;
+import com.abarigena.userservice.service.PublicProfileCache;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.kafka.annotation.KafkaHandler;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.messaging.handler.annotation.Payload;
+import org.springframework.stereotype.Service;
+
+// Каждый инстанс читает user-profile-events своей группой (group-id по идентификатору инстанса) и сбрасывает
+// кэш публичных профилей. Новая группа начинает с конца топика: до старта кэш был пуст.
+@Service
+@RequiredArgsConstructor
+@Slf4j
+@KafkaListener(topics = "${spring.kafka.topic.user-profile-updated}",
+        groupId = "${app.cache.public-profiles.consumer-group}",
+        containerFactory = "kafkaListenerContainerFactory",
+        properties = "auto.offset.reset=latest")
+public class ProfileCacheInvalidationListener {
+
+    private final PublicProfileCache publicProfileCache;
+
+    @KafkaHandler
+    public void listenUserProfileUpdated(@Payload UserProfileUpdatedEvent event) {
+        log.debug("Evicting public profile cache for userId: {}", event.getUserId());
+        publicProfileCache.evictRemote(event.getUserId(), event.getTimestamp());
+    }
+
+    // UserContactVerifiedEvent и прочие события топика публичный профиль не меняют
+    @KafkaHandler(isDefault = true)
+    public void ignore(Object event) {
+    }
+}
@@ -0,0 +1,64 @@
+package com.abarigena.userservice.kafka;
+
+import com.abarigena.dto.kafka.UserRatingUpdatedEvent;
+import com.abarigena.dto.kafka.UserRegisteredEvent;
+import com.abarigena.userservice.service.UserService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.kafka.annotation.DltHandler;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.annotation.RetryableTopic;
+import org.springframework.kafka.retrytopic.DltStrategy;
+import org.springframework.kafka.support.KafkaHeaders;
+import org.springframework.messaging.handler.annotation.Header;
+import org.springframework.retry.annotation.Backoff;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+
+// Повторы вне основного потока: записи из FailedEventForwarder проходят ступени
+// user-service-retry-retry-<задержка> с растущей задержкой, затем попадают в user-service-retry-dlt.
+// DeadLetterPublishingRecoverer добавляет в DLT заголовки с исключением и исходным топиком/смещением.
+// Из DLT записи возвращаются через POST /api/admin/dlt/replay.
+@Service
+@Slf4j
+public class RetryListener {
+
+    private final UserService userService;
+    private final Counter deadLettered;
+
+    public RetryListener(UserService userService, MeterRegistry meterRegistry) {
+        this.userService = userService;
+        this.deadLettered = Counter.builder("user.kafka.dlt.records").register(meterRegistry);
+    }
+
+    @RetryableTopic(attempts = "${app.kafka.retry.attempts}",
+            backoff = @Backoff(delayExpression = "${app.kafka.retry.initial-delay-ms}",
+                    multiplierExpression = "${app.kafka.retry.multiplier}",
+                    maxDelayExpression = "${app.kafka.retry.max-delay-ms}"),
+            kafkaTemplate = "kafkaTemplate",
+            dltStrategy = DltStrategy.FAIL_ON_ERROR)
+    @KafkaListener(topics = "${spring.kafka.topic.user-service-retry}",
+            groupId = "${spring.kafka.consumer.group-id}",
+            containerFactory = "kafkaListenerContainerFactory")
+    public void listenRetry(ConsumerRecord<String, Object> record) {
+        // Исключение уводит запись на следующую ступень
+        if (record.value() instanceof UserRegisteredEvent event) {
+            userService.createUserProfile(event);
+        } else if (record.value() instanceof UserRatingUpdatedEvent event) {
+            userService.updateUserRatings(List.of(event));
+        } else {
+            log.warn("Skipping unsupported retry record of type {}",
+                    record.value() != null ? record.value().getClass().getName() : null);
+        }
+    }
+
+    @DltHandler
+    public void handleDeadLetter(ConsumerRecord<String, Object> record,
+                                 @Header(name = KafkaHeaders.DLT_EXCEPTION_MESSAGE, required = false) String error) {
+        deadLettered.increment();
+        log.error("Record with key {} moved to dead-letter topic {} after retries: {}", record.key(), record.topic(), error);
+    }
+}
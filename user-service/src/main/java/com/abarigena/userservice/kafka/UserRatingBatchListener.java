@@ -0,0 +1,89 @@
+package com.abarigena.userservice.kafka;
+
+import com.abarigena.dto.kafka.UserRatingUpdatedEvent;
+import com.abarigena.userservice.service.UserService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+// Рейтинг популярного водителя пересчитывается часто, а значение нужно только последнее:
+// в пределах одной выборки poll() оставляем по одному событию на пользователя и пишем их одним UPDATE.
+// Число записей в БД пропорционально числу пользователей, а не событий.
+@Service
+@Slf4j
+public class UserRatingBatchListener {
+
+    private final UserService userService;
+    private final FailedEventForwarder failedEventForwarder;
+    private final Counter received;
+    private final Counter applied;
+
+    public UserRatingBatchListener(UserService userService,
+                                   FailedEventForwarder failedEventForwarder,
+                                   MeterRegistry meterRegistry) {
+        this.userService = userService;
+        this.failedEventForwarder = failedEventForwarder;
+        // Отношение applied/received - доля событий, дошедших до БД
+        this.received = Counter.builder("user.rating.events").tag("stage", "received").register(meterRegistry);
+        this.applied = Counter.builder("user.rating.events").tag("stage", "applied").register(meterRegistry);
+    }
+
+    @KafkaListener(topics = "${spring.kafka.topic.user-rating-updated}",
+            groupId = "${spring.kafka.consumer.group-id}",
+            containerFactory = "batchKafkaListenerContainerFactory",
+            properties = "max.poll.records=${app.kafka.user-rating-updated.max-poll-records}")
+    public void listenUserRatingUpdated(List<ConsumerRecord<String, Object>> batch) {
+        // По пользователю храним запись с последним событием - она понадобится для пересылки в повторы
+        Map<UUID, ConsumerRecord<String, Object>> latest = new LinkedHashMap<>();
+        int events = 0;
+        for (ConsumerRecord<String, Object> record : batch) {
+            if (record.value() instanceof UserRatingUpdatedEvent event) {
+                events++;
+                latest.merge(event.getUserId(), record, UserRatingBatchListener::newer);
+            } else if (record.value() == null) {
+                failedEventForwarder.deadLetterIfUndeserializable(record);
+            }
+        }
+        received.increment(events);
+        if (latest.isEmpty()) {
+            return;
+        }
+        List<UserRatingUpdatedEvent> updates = new ArrayList<>(latest.size());
+        latest.values().forEach(record -> updates.add((UserRatingUpdatedEvent) record.value()));
+        try {
+            userService.updateUserRatings(updates);
+        } catch (Exception e) {
+            log.warn("Bulk rating update failed, falling back to per-user updates: {}", e.getMessage());
+            for (ConsumerRecord<String, Object> record : latest.values()) {
+                try {
+                    userService.updateUserRatings(List.of((UserRatingUpdatedEvent) record.value()));
+                } catch (Exception ex) {
+                    failedEventForwarder.forward(record, ex);
+                }
+            }
+        }
+        applied.increment(latest.size());
+        log.info("Applied {} rating updates coalesced from {} events", latest.size(), events);
+    }
+
+    // Записи одного ключа приходят по порядку смещений; timestamp защищает от перестановок у продюсера
+    private static ConsumerRecord<String, Object> newer(ConsumerRecord<String, Object> current,
+                                                        ConsumerRecord<String, Object> candidate) {
+        Instant currentTime = ((UserRatingUpdatedEvent) current.value()).getTimestamp();
+        Instant candidateTime = ((UserRatingUpdatedEvent) candidate.value()).getTimestamp();
+        if (currentTime != null && candidateTime != null && candidateTime.isBefore(currentTime)) {
+            return current;
+        }
+        return candidate;
+    }
+}
@@ -0,0 +1,88 @@
+package com.abarigena.userservice.kafka;
+
+import com.abarigena.dto.kafka.UserRegisteredEvent;
+import com.abarigena.userservice.service.UserService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Пакетный режим создания профилей (app.kafka.user-registered.mode=batch): вся выборка poll()
+// записывается одним INSERT. Если он упал, записи вставляются по одной, а упавшие пересылаются
+// в топик повторов (FailedEventForwarder), не десериализованные - сразу в DLT. Пачка подтверждается
+// целиком после обработки; повторно контейнер получит ее, только если не удалась сама пересылка.
+@Service
+@Slf4j
+@ConditionalOnProperty(name = "app.kafka.user-registered.mode", havingValue = "batch")
+public class UserRegisteredBatchListener {
+
+    private final UserService userService;
+    private final FailedEventForwarder failedEventForwarder;
+    private final Counter records;
+    private final DistributionSummary batchSize;
+    private final Timer batchWrite;
+
+    public UserRegisteredBatchListener(UserService userService,
+                                       FailedEventForwarder failedEventForwarder,
+                                       MeterRegistry meterRegistry) {
+        this.userService = userService;
+        this.failedEventForwarder = failedEventForwarder;
+        // rate(user.registered.records) - созданных профилей в секунду
+        this.records = Counter.builder("user.registered.records").register(meterRegistry);
+        this.batchSize = DistributionSummary.builder("user.registered.batch.size").register(meterRegistry);
+        this.batchWrite = Timer.builder("user.registered.batch.write").register(meterRegistry);
+    }
+
+    @KafkaListener(topics = "${spring.kafka.topic.user-registered}",
+            groupId = "${spring.kafka.consumer.group-id}",
+            containerFactory = "batchKafkaListenerContainerFactory",
+            properties = "max.poll.records=${app.kafka.user-registered.max-poll-records}")
+    public void listenUserRegistered(List<ConsumerRecord<String, Object>> batch) {
+        // В auth-events идут и другие события auth-service
+        List<ConsumerRecord<String, Object>> registrations = new ArrayList<>(batch.size());
+        List<UserRegisteredEvent> events = new ArrayList<>(batch.size());
+        for (ConsumerRecord<String, Object> record : batch) {
+            if (record.value() instanceof UserRegisteredEvent event) {
+                registrations.add(record);
+                events.add(event);
+            } else if (record.value() == null) {
+                failedEventForwarder.deadLetterIfUndeserializable(record);
+            }
+        }
+        batchSize.record(events.size());
+        if (events.isEmpty()) {
+            return;
+        }
+        int inserted;
+        try {
+            inserted = batchWrite.record(() -> userService.createUserProfiles(events));
+        } catch (Exception e) {
+            // Одна "ядовитая" запись валит весь INSERT: пишем по одной, упавшие - в топик повторов
+            log.warn("Bulk profile insert failed, falling back to per-record inserts: {}", e.getMessage());
+            inserted = insertOneByOne(registrations);
+        }
+        records.increment(inserted);
+        log.info("Created {} user profiles from {} UserRegisteredEvents in batch of {} records",
+                inserted, events.size(), batch.size());
+    }
+
+    private int insertOneByOne(List<ConsumerRecord<String, Object>> registrations) {
+        int inserted = 0;
+        for (ConsumerRecord<String, Object> record : registrations) {
+            try {
+                inserted += userService.createUserProfiles(List.of((UserRegisteredEvent) record.value()));
+            } catch (Exception e) {
+                failedEventForwarder.forward(record, e);
+            }
+        }
+        return inserted;
+    }
+}
@@ -0,0 +1,69 @@
+package com.abarigena.userservice.kafka;
+
+import com.abarigena.dto.kafka.UserRegisteredEvent;
+import com.abarigena.userservice.service.UserService;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.stereotype.Service;
+
+// Режим app.kafka.user-registered.mode=ordered-parallel: записи одной партиции обрабатываются
+// пулом потоков, порядок сохраняется только внутри ключа (userId). Подтверждения приходят не по порядку,
+// контейнер (asyncAcks) коммитит смещение, только когда обработаны все записи до него.
+@Service
+@Slf4j
+@ConditionalOnProperty(name = "app.kafka.user-registered.mode", havingValue = "ordered-parallel")
+public class UserRegisteredOrderedListener {
+
+    private final UserService userService;
+    private final FailedEventForwarder failedEventForwarder;
+    private final KeyOrderedExecutor executor;
+    private final long shutdownTimeoutMs;
+
+    public UserRegisteredOrderedListener(UserService userService,
+                                         FailedEventForwarder failedEventForwarder,
+                                         MeterRegistry meterRegistry,
+                                         @Value("${app.kafka.ordered.workers}") int workers,
+                                         @Value("${app.kafka.ordered.max-in-flight}") int maxInFlight,
+                                         @Value("${app.kafka.ordered.retry-backoff-ms}") long retryBackoffMs,
+                                         @Value("${app.kafka.ordered.max-retry-backoff-ms}") long maxRetryBackoffMs,
+                                         @Value("${app.kafka.ordered.shutdown-timeout-ms}") long shutdownTimeoutMs) {
+        this.userService = userService;
+        this.failedEventForwarder = failedEventForwarder;
+        this.executor = new KeyOrderedExecutor("user-registered", workers, maxInFlight,
+                retryBackoffMs, maxRetryBackoffMs, meterRegistry);
+        this.shutdownTimeoutMs = shutdownTimeoutMs;
+    }
+
+    @KafkaListener(topics = "${spring.kafka.topic.user-registered}",
+            groupId = "${spring.kafka.consumer.group-id}",
+            containerFactory = "orderedKafkaListenerContainerFactory")
+    public void listenUserRegistered(ConsumerRecord<String, Object> record, Acknowledgment ack) {
+        // В auth-events идут и другие события auth-service - подтверждаем сразу
+        if (!(record.value() instanceof UserRegisteredEvent event)) {
+            ack.acknowledge();
+            return;
+        }
+        String key = record.key() != null ? record.key() : String.valueOf(event.getUserId());
+        executor.submit(key, () -> process(record, event), ack::acknowledge);
+    }
+
+    private void process(ConsumerRecord<String, Object> record, UserRegisteredEvent event) {
+        try {
+            userService.createUserProfile(event);
+        } catch (Exception e) {
+            // Ошибка пересылки пробрасывается: executor повторит запись, подтверждения до тех пор не будет
+            failedEventForwarder.forward(record, e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        executor.shutdown(shutdownTimeoutMs);
+    }
+}
@@ -1,12 +1,35 @@
 package com.abarigena.userservice.repository;
 
 import com.abarigena.userservice.entity.UserProfile;
+import com.abarigena.userservice.dto.PublicUserDto;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 
 @Repository
 public interface UserProfileRepository extends JpaRepository<UserProfile, UUID> {
 
+    @Query("select new com.abarigena.userservice.dto.PublicUserDto(p.userId, p.firstName, p.photoUrl, p.averageRating, p.updatedAt) " +
+            "from UserProfile p where p.userId = :id")
+    Optional<PublicUserDto> findPublicProfileById(@Param("id") UUID id);
+
+    // Версия профиля для условных GET: одна колонка по первичному ключу
+    @Query("select p.updatedAt from UserProfile p where p.userId = :id")
+    Optional<LocalDateTime> findUpdatedAtById(@Param("id") UUID id);
+
+    // type - UserProfileView или UserProfileView.WithAdditionalInfo
+    <T> Optional<T> findByUserId(UUID userId, Class<T> type);
+
+    // Один запрос на пачку и только колонки публичного профиля, без загрузки сущностей
+    @Query("select new com.abarigena.userservice.dto.PublicUserDto(p.userId, p.firstName, p.photoUrl, p.averageRating, p.updatedAt) " +
+            "from UserProfile p where p.userId in :ids")
+    List<PublicUserDto> findPublicProfilesByIdIn(@Param("ids") Collection<? extends UUID> ids);
+
 }
\ No newline at end of file
@@ -0,0 +1,35 @@
+package com.abarigena.userservice.repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+// Закрытая проекция полного профиля: Spring Data выбирает только перечисленные колонки.
+// additionalInfo (TEXT без ограничения длины) читается только через WithAdditionalInfo.
+public interface UserProfileView {
+
+    UUID getUserId();
+
+    String getEmail();
+
+    String getFirstName();
+
+    String getLastName();
+
+    String getPhoneNumber();
+
+    Boolean getPhoneVerified();
+
+    String getPhotoUrl();
+
+    BigDecimal getAverageRating();
+
+    LocalDateTime getCreatedAt();
+
+    LocalDateTime getUpdatedAt();
+
+    interface WithAdditionalInfo extends UserProfileView {
+
+        String getAdditionalInfo();
+    }
+}
@@ -0,0 +1,77 @@
+package com.abarigena.userservice.service;
+
+import com.abarigena.userservice.dto.PublicUserDto;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Function;
+
+// Кэш публичных профилей (имя, фото, рейтинг) - самое частое чтение сервиса.
+// Изменения на этом инстансе сбрасывают запись после коммита, на других - по UserProfileUpdatedEvent.
+// TTL - страховка на случай потерянного события, он же ограничивает максимальную устарелость.
+@Component
+public class PublicProfileCache {
+
+    private final Cache<UUID, PublicUserDto> cache;
+    private final Timer staleness;
+
+    public PublicProfileCache(@Value("${app.cache.public-profiles.max-size}") long maxSize,
+                              @Value("${app.cache.public-profiles.ttl-ms}") long ttlMs,
+                              MeterRegistry meterRegistry) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofMillis(ttlMs))
+                .recordStats()
+                .build();
+        // cache.gets{result=hit|miss} и т.д. - hit rate
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "user.public-profiles");
+        // Сколько после изменения профиля другой инстанс еще мог отдавать старые данные
+        this.staleness = Timer.builder("user.public-profiles.staleness").register(meterRegistry);
+    }
+
+    // Загрузка внутри кэша: параллельный сброс не оставит устаревшую запись
+    public PublicUserDto get(UUID userId, Function<UUID, PublicUserDto> loader) {
+        return cache.get(userId, loader);
+    }
+
+    // Отсутствующие ключи загружаются одним вызовом loader; ненайденные в результат не попадают
+    public Map<UUID, PublicUserDto> getAll(Set<UUID> userIds,
+                                           Function<Set<? extends UUID>, Map<UUID, PublicUserDto>> loader) {
+        return cache.getAll(userIds, loader);
+    }
+
+    // Сброс после коммита транзакции, иначе параллельное чтение успеет закэшировать старое значение
+    public void evictAfterCommit(UUID userId) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    cache.invalidate(userId);
+                }
+            });
+        } else {
+            cache.invalidate(userId);
+        }
+    }
+
+    // Изменение, сделанное на другом инстансе; changedAt - время события
+    public void evictRemote(UUID userId, Instant changedAt) {
+        boolean cached = cache.asMap().containsKey(userId); // Без влияния на статистику попаданий
+        cache.invalidate(userId);
+        if (cached && changedAt != null) {
+            staleness.record(Duration.between(changedAt, Instant.now()));
+        }
+    }
+}
@@ -11,6 +11,10 @@ import com.abarigena.userservice.dto.UserUpdateDto;
 
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 
 public interface UserService {
@@ -18,12 +22,20 @@ public interface UserService {
 
     void createUserProfile(UserRegisteredEvent event);
 
+    int createUserProfiles(List<UserRegisteredEvent> events);
+
+    @Transactional(readOnly = true)
+    UserProfileDto getCurrentUserProfile(UUID userId, boolean includeAdditionalInfo);
+
     @Transactional(readOnly = true)
-    UserProfileDto getCurrentUserProfile(UUID userId);
+    LocalDateTime getProfileVersion(UUID userId);
 
     @Transactional(readOnly = true)
     PublicUserDto getPublicUserProfile(UUID userId);
 
+    @Transactional(readOnly = true)
+    Map<UUID, PublicUserDto> getPublicUserProfiles(Set<UUID> userIds);
+
     UserProfileDto updateCurrentUserProfile(UUID userId, UserUpdateDto userUpdateDto);
 
     void initiatePhoneVerification(UUID userId);
@@ -31,4 +43,6 @@ public interface UserService {
     void confirmPhoneVerification(UUID userId, ConfirmPhoneDto confirmPhoneDto);
 
     void updateUserRating(UserRatingUpdatedEvent event);
+
+    void updateUserRatings(List<UserRatingUpdatedEvent> events);
 }
@@ -11,17 +11,33 @@ import com.abarigena.userservice.entity.UserProfile;
 import com.abarigena.userservice.exception.BadRequestException;
 import com.abarigena.userservice.kafka.KafkaProducerService;
 import com.abarigena.userservice.repository.UserProfileRepository;
+import com.abarigena.userservice.repository.UserProfileView;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.kafka.common.errors.ResourceNotFoundException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.Timestamp;
 import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
 import java.util.UUID;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
@@ -31,6 +47,11 @@ public class UserServiceImpl implements UserService {
 
     private final UserProfileRepository userProfileRepository;
     private final KafkaProducerService kafkaProducerService;
+    private final PublicProfileCache publicProfileCache;
+    private final JdbcTemplate jdbcTemplate;
+
+    @Value("${app.users.public-batch.max-size}")
+    private int maxPublicBatchSize;
 
 
 
@@ -51,23 +72,73 @@ public class UserServiceImpl implements UserService {
         log.info("User profile created for userId: {}", event.getUserId());
     }
 
+    // Пакетная вставка одним INSERT ... SELECT FROM unnest(...), без existsById. Повтор события
+    // пропускает ON CONFLICT (user_id); нарушение других ограничений (email/телефон) валит запрос,
+    // и слушатель переходит на вставку по одной. Возвращает число реально созданных профилей.
+    @Override
+    public int createUserProfiles(List<UserRegisteredEvent> events) {
+        // Повторы одного userId внутри пачки: остается последнее событие
+        Map<UUID, UserRegisteredEvent> byUserId = new LinkedHashMap<>();
+        for (UserRegisteredEvent event : events) {
+            byUserId.put(event.getUserId(), event);
+        }
+        List<UserRegisteredEvent> unique = new ArrayList<>(byUserId.values());
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        int inserted = jdbcTemplate.update("""
+                        INSERT INTO user_profiles (user_id, email, first_name, last_name, phone_number,
+                                                   phone_verified, average_rating, created_at, updated_at)
+                        SELECT u.user_id, u.email, u.first_name, u.last_name, u.phone_number, false, 0.0, ?, ?
+                        FROM unnest(?::uuid[], ?::text[], ?::text[], ?::text[], ?::text[])
+                             AS u(user_id, email, first_name, last_name, phone_number)
+                        ON CONFLICT (user_id) DO NOTHING""",
+                ps -> {
+                    Connection connection = ps.getConnection();
+                    ps.setTimestamp(1, now);
+                    ps.setTimestamp(2, now);
+                    ps.setArray(3, connection.createArrayOf("uuid",
+                            unique.stream().map(UserRegisteredEvent::getUserId).toArray()));
+                    ps.setArray(4, connection.createArrayOf("text",
+                            unique.stream().map(UserRegisteredEvent::getEmail).toArray()));
+                    ps.setArray(5, connection.createArrayOf("text",
+                            unique.stream().map(UserRegisteredEvent::getFirstName).toArray()));
+                    ps.setArray(6, connection.createArrayOf("text",
+                            unique.stream().map(UserRegisteredEvent::getLastName).toArray()));
+                    ps.setArray(7, connection.createArrayOf("text",
+                            unique.stream().map(UserRegisteredEvent::getPhoneNumber).toArray()));
+                });
+        log.info("Bulk created {} user profiles for {} events", inserted, unique.size());
+        return inserted;
+    }
+
     @Transactional(readOnly = true)
     @Override
-    public UserProfileDto getCurrentUserProfile(UUID userId) {
-        return getUserProfileDtoById(userId);
+    public UserProfileDto getCurrentUserProfile(UUID userId, boolean includeAdditionalInfo) {
+        // Сущность целиком не грузим: additionalInfo читается, только если его запросили
+        Class<? extends UserProfileView> view = includeAdditionalInfo
+                ? UserProfileView.WithAdditionalInfo.class
+                : UserProfileView.class;
+        UserProfileView profile = userProfileRepository.findByUserId(userId, view)
+                .orElseThrow(() -> new ResourceNotFoundException("User profile not found with id: " + userId));
+        String additionalInfo = profile instanceof UserProfileView.WithAdditionalInfo details
+                ? details.getAdditionalInfo()
+                : null;
+        return mapToUserProfileDto(profile, additionalInfo);
     }
 
     @Transactional(readOnly = true)
     @Override
+    public LocalDateTime getProfileVersion(UUID userId) {
+        return userProfileRepository.findUpdatedAtById(userId)
+                .orElseThrow(() -> new ResourceNotFoundException("User profile not found with id: " + userId));
+    }
+
+    // SUPPORTS: при попадании в кэш транзакция и соединение из пула не нужны
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
+    @Override
     public PublicUserDto getPublicUserProfile(UUID userId) {
-        UserProfile profile = findUserProfileById(userId);
-        // Маппинг в PublicUserDto
-        return PublicUserDto.builder()
-                .id(profile.getUserId())
-                .firstName(profile.getFirstName())
-                .photoUrl(profile.getPhotoUrl())
-                .averageRating(profile.getAverageRating())
-                .build();
+        // Проекция только публичных колонок, без загрузки сущности
+        return publicProfileCache.get(userId, id -> userProfileRepository.findPublicProfileById(id)
+                .orElseThrow(() -> new ResourceNotFoundException("User profile not found with id: " + id)));
     }
 
     @Override
@@ -102,7 +173,9 @@ public class UserServiceImpl implements UserService {
         log.info("User profile updated for userId: {}", userId);
 
         if (!updatedFields.isEmpty()) {
-            kafkaProducerService.sendUserProfileUpdatedEvent(userId, updatedFields);
+            publicProfileCache.evictAfterCommit(userId);
+            // После коммита: другие инстансы сбросят кэш и не прочитают старое значение повторно
+            afterCommit(() -> kafkaProducerService.sendUserProfileUpdatedEvent(userId, updatedFields));
         }
 
         return mapToUserProfileDto(updatedProfile);
@@ -152,24 +225,80 @@ public class UserServiceImpl implements UserService {
     // Вызывается Kafka консьюмером
     @Override
     public void updateUserRating(UserRatingUpdatedEvent event) {
-        UserProfile profile = findUserProfileById(event.getUserId());
-        profile.setAverageRating(event.getNewAverageRating());
-        userProfileRepository.save(profile);
-        log.info("Updated average rating for user {}: {}", event.getUserId(), event.getNewAverageRating());
+        // Тот же путь, что у пачки: с проверкой порядка по времени события
+        updateUserRatings(List.of(event));
     }
 
 
+    // Один UPDATE ... FROM (VALUES ...) на пачку; events - уже по одному на userId.
+    // RETURNING отдает только обновленные профили - для них сбрасываем кэш и публикуем изменение.
+    // Событие применяется, только если оно новее уже записанного (rating_updated_at): повтор из топика
+    // повторов или DLT может прийти через часы и не должен затереть более свежий рейтинг.
+    @Override
+    public void updateUserRatings(List<UserRatingUpdatedEvent> events) {
+        StringBuilder sql = new StringBuilder("""
+                UPDATE user_profiles p SET average_rating = v.rating, rating_updated_at = v.ts, updated_at = ?
+                FROM (VALUES """);
+        List<Object> args = new ArrayList<>(events.size() * 3 + 1);
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        args.add(now);
+        Map<UUID, BigDecimal> ratings = new HashMap<>();
+        for (int i = 0; i < events.size(); i++) {
+            UserRatingUpdatedEvent event = events.get(i);
+            sql.append(i == 0 ? "" : ", ").append("(?::uuid, ?::numeric, ?::timestamp)");
+            args.add(event.getUserId());
+            args.add(event.getNewAverageRating());
+            // Событие без времени упорядочиваем по моменту получения
+            args.add(event.getTimestamp() != null ? Timestamp.from(event.getTimestamp()) : now);
+            ratings.put(event.getUserId(), event.getNewAverageRating());
+        }
+        sql.append(") AS v(user_id, rating, ts) WHERE p.user_id = v.user_id")
+                .append(" AND (p.rating_updated_at IS NULL OR p.rating_updated_at < v.ts)")
+                .append(" RETURNING p.user_id");
+
+        List<UUID> updated = jdbcTemplate.queryForList(sql.toString(), UUID.class, args.toArray());
+        if (updated.size() < events.size()) {
+            log.warn("Rating updates skipped for {} unknown users or outdated events", events.size() - updated.size());
+        }
+        for (UUID userId : updated) {
+            publicProfileCache.evictAfterCommit(userId);
+            Map<String, Object> updatedFields = Collections.singletonMap("averageRating", ratings.get(userId));
+            afterCommit(() -> kafkaProducerService.sendUserProfileUpdatedEvent(userId, updatedFields));
+        }
+        log.info("Bulk updated average rating for {} users", updated.size());
+    }
+
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
+    @Override
+    public Map<UUID, PublicUserDto> getPublicUserProfiles(Set<UUID> userIds) {
+        if (userIds.size() > maxPublicBatchSize) {
+            throw new BadRequestException("Too many user ids in batch, max is " + maxPublicBatchSize);
+        }
+        // Из БД читаем только то, чего нет в кэше, одним IN-запросом
+        return publicProfileCache.getAll(userIds, missing ->
+                userProfileRepository.findPublicProfilesByIdIn(missing).stream()
+                        .collect(Collectors.toMap(PublicUserDto::getId, Function.identity())));
+    }
+
     // --- Вспомогательные методы ---
+    private void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
     private UserProfile findUserProfileById(UUID userId) {
         return userProfileRepository.findById(userId)
                 .orElseThrow(() -> new ResourceNotFoundException("User profile not found with id: " + userId));
     }
 
-    private UserProfileDto getUserProfileDtoById(UUID userId) {
-        UserProfile profile = findUserProfileById(userId);
-        return mapToUserProfileDto(profile);
-    }
-
 
     private UserProfileDto mapToUserProfileDto(UserProfile profile) {
         // Конвертируем время создания в LocalDateTime (если оно Instant)
@@ -188,6 +317,23 @@ public class UserServiceImpl implements UserService {
                 .additionalInfo(profile.getAdditionalInfo())
                 .registrationDate(registrationDateTime)
                 .averageRating(profile.getAverageRating())
+                .updatedAt(profile.getUpdatedAt())
+                .build();
+    }
+
+    private UserProfileDto mapToUserProfileDto(UserProfileView profile, String additionalInfo) {
+        return UserProfileDto.builder()
+                .id(profile.getUserId())
+                .email(profile.getEmail())
+                .firstName(profile.getFirstName())
+                .lastName(profile.getLastName())
+                .phoneNumber(profile.getPhoneNumber())
+                .phoneVerified(profile.getPhoneVerified())
+                .photoUrl(profile.getPhotoUrl())
+                .additionalInfo(additionalInfo)
+                .registrationDate(profile.getCreatedAt())
+                .averageRating(profile.getAverageRating())
+                .updatedAt(profile.getUpdatedAt())
                 .build();
     }
 }
\ No newline at end of file
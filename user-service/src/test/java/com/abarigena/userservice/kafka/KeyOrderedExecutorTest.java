@@ -0,0 +1,116 @@
+package com.abarigena.userservice.kafka;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class KeyOrderedExecutorTest {
+
+    private static final String NAME = "test";
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final KeyOrderedExecutor executor = new KeyOrderedExecutor(NAME, 4, 50, 1, 10, meterRegistry);
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        executor.shutdown(5_000);
+    }
+
+    @Test
+    void preservesOrderWithinKey() throws InterruptedException {
+        int keys = 8;
+        int tasksPerKey = 200;
+        Map<String, List<Integer>> processed = new ConcurrentHashMap<>();
+        CountDownLatch done = new CountDownLatch(keys * tasksPerKey);
+
+        // Ключи чередуются, как записи разных пользователей в одной партиции
+        for (int i = 0; i < tasksPerKey; i++) {
+            for (int k = 0; k < keys; k++) {
+                String key = "user-" + k;
+                int sequence = i;
+                executor.submit(key, () -> {
+                    sleepMicros(ThreadLocalRandom.current().nextInt(200));
+                    processed.computeIfAbsent(key, ignored -> Collections.synchronizedList(new ArrayList<>())).add(sequence);
+                }, done::countDown);
+            }
+        }
+
+        assertTrue(done.await(30, TimeUnit.SECONDS), "not all tasks completed");
+        List<Integer> expected = IntStream.range(0, tasksPerKey).boxed().toList();
+        for (int k = 0; k < keys; k++) {
+            assertEquals(expected, processed.get("user-" + k), "order broken for user-" + k);
+        }
+    }
+
+    @Test
+    void retriesFailedTaskBeforeNextTaskOfSameKey() throws InterruptedException {
+        List<String> events = Collections.synchronizedList(new ArrayList<>());
+        AtomicInteger attempts = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(2);
+
+        executor.submit("user", () -> {
+            if (attempts.incrementAndGet() < 3) {
+                throw new IllegalStateException("transient failure");
+            }
+            events.add("first");
+        }, () -> {
+            events.add("first-ack");
+            done.countDown();
+        });
+        executor.submit("user", () -> events.add("second"), () -> {
+            events.add("second-ack");
+            done.countDown();
+        });
+
+        assertTrue(done.await(5, TimeUnit.SECONDS), "tasks did not complete");
+        assertEquals(3, attempts.get());
+        assertEquals(List.of("first", "first-ack", "second", "second-ack"), events);
+        assertEquals(2.0, meterRegistry.get("user.kafka.ordered.retries").counter().count());
+    }
+
+    @Test
+    void drainsLanesAfterCompletion() throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(1_000);
+        for (int i = 0; i < 1_000; i++) {
+            executor.submit("user-" + (i % 100), () -> sleepMicros(50), done::countDown);
+        }
+
+        assertTrue(done.await(30, TimeUnit.SECONDS), "not all tasks completed");
+        // Счетчики освобождаются в finally после подтверждения - ждем их, а не latch
+        awaitGauge("user.kafka.ordered.keys", 0);
+        awaitGauge("user.kafka.ordered.in-flight", 0);
+    }
+
+    private void awaitGauge(String name, double expected) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        double value = meterRegistry.get(name).tag("listener", NAME).gauge().value();
+        while (value != expected && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+            value = meterRegistry.get(name).tag("listener", NAME).gauge().value();
+        }
+        assertEquals(expected, value, name);
+    }
+
+    private static void sleepMicros(long micros) {
+        try {
+            TimeUnit.MICROSECONDS.sleep(micros);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}